@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Synthetic catalog shared by the benchmarks: films and users with ids 1..n, likes and friendships following
+ * a power-law distribution so that a few films and users are very popular and the long tail is nearly empty.
+ */
+public class BenchmarkCatalog {
+    public static final String IN_MEMORY = "in-memory";
+    public static final String H2 = "h2";
+    private static final int BATCH_SIZE = 10_000;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final EmbeddedDatabase database;
+    private final int filmCount;
+    private final int userCount;
+    private final Random random = new Random(42);
+
+    public BenchmarkCatalog(String storage, int filmCount, int userCount) {
+        this.filmCount = filmCount;
+        this.userCount = userCount;
+        if (H2.equals(storage)) {
+            database = new EmbeddedDatabaseBuilder()
+                    .setType(EmbeddedDatabaseType.H2)
+                    .setName(UUID.randomUUID().toString())
+                    .addScript("schema.sql")
+                    .build();
+            filmStorage = new FilmDbStorage(new JdbcTemplate(database), new NamedParameterJdbcTemplate(database));
+            userStorage = new UserDbStorage(new JdbcTemplate(database), new NamedParameterJdbcTemplate(database));
+        } else if (IN_MEMORY.equals(storage)) {
+            database = null;
+            filmStorage = new InMemoryFilmStorage();
+            userStorage = new InMemoryUserStorage();
+        } else {
+            throw new IllegalArgumentException("Unknown storage " + storage);
+        }
+        addUsers();
+        addFilms();
+    }
+
+    public FilmStorage getFilmStorage() {
+        return filmStorage;
+    }
+
+    public UserStorage getUserStorage() {
+        return userStorage;
+    }
+
+    public int getFilmCount() {
+        return filmCount;
+    }
+
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * Gives the film of popularity rank r about maxLikes / r^skew likes from distinct users.
+     */
+    public void addSkewedLikes(int maxLikes, double skew) {
+        List<Like> batch = new ArrayList<>(BATCH_SIZE);
+        for (int rank = 1; rank <= filmCount; rank++) {
+            int likes = (int) Math.min(userCount, maxLikes / Math.pow(rank, skew));
+            if (likes == 0) {
+                break;
+            }
+            long filmId = 1 + (long) (rank - 1) * 7919 % filmCount;
+            int firstUser = random.nextInt(userCount);
+            for (int i = 0; i < likes; i++) {
+                batch.add(new Like(filmId, 1 + (firstUser + i) % userCount));
+                if (batch.size() == BATCH_SIZE) {
+                    filmStorage.addLikes(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            filmStorage.addLikes(batch);
+        }
+    }
+
+    /**
+     * Gives the user of rank r about maxFriends / r^skew friends. The two top-ranked users share most of
+     * their audience, which makes user ids 1 and 2 the worst case for common-friend queries.
+     */
+    public void addSkewedFriendships(int maxFriends, double skew) {
+        List<Friendship> batch = new ArrayList<>(BATCH_SIZE);
+        for (int rank = 1; rank <= userCount; rank++) {
+            int friends = (int) Math.min(userCount - 1, maxFriends / Math.pow(rank, skew));
+            if (friends == 0) {
+                break;
+            }
+            int firstFriend = rank <= 2 ? 2 : random.nextInt(userCount);
+            for (int i = 0; i < friends; i++) {
+                long friendId = 1 + (firstFriend + i) % userCount;
+                if (friendId != rank) {
+                    batch.add(new Friendship(rank, friendId));
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    userStorage.addFriendships(batch);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            userStorage.addFriendships(batch);
+        }
+    }
+
+    public void close() {
+        if (database != null) {
+            database.shutdown();
+        }
+    }
+
+    public static Film newFilm(long id) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName("film-" + id);
+        film.setDescription("Benchmark film " + id);
+        film.setReleaseDate(LocalDate.of(1900 + (int) (id % 120), 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    public static User newUser(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setLogin("user-" + id);
+        user.setName("user-" + id);
+        user.setEmail("user-" + id + "@mail.ru");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private void addUsers() {
+        List<User> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= userCount; id++) {
+            batch.add(newUser(id));
+            if (batch.size() == BATCH_SIZE || id == userCount) {
+                userStorage.addUsers(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+    }
+
+    private void addFilms() {
+        List<Film> batch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= filmCount; id++) {
+            batch.add(newFilm(id));
+            if (batch.size() == BATCH_SIZE || id == filmCount) {
+                filmStorage.addFilms(batch);
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CommonFriendsBenchmark {
+    @Param({BenchmarkCatalog.IN_MEMORY, BenchmarkCatalog.H2})
+    private String storage;
+    @Param({"10000", "1000000"})
+    private int userCount;
+    @Param({"1000", "100000"})
+    private int maxFriends;
+    @Param({"1.0"})
+    private double friendSkew;
+    private BenchmarkCatalog catalog;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = new BenchmarkCatalog(storage, 0, userCount);
+        catalog.addSkewedFriendships(maxFriends, friendSkew);
+        userService = new UserService(catalog.getUserStorage(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Benchmark
+    public List<User> topUsers() {
+        return userService.getListOfCommonFriends(1, 2, 0, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<User> topUsersFirstPage() {
+        return userService.getListOfCommonFriends(1, 2, 0, 100);
+    }
+
+    @Benchmark
+    public List<User> randomUsers() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userService.getListOfCommonFriends(random.nextLong(1, userCount + 1),
+                random.nextLong(1, userCount + 1), 0, Integer.MAX_VALUE);
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FilmServiceBenchmark {
+    private static final int RECENT_LIKES = 1_000_000;
+    @Param({BenchmarkCatalog.IN_MEMORY, BenchmarkCatalog.H2})
+    private String storage;
+    @Param({"10000", "1000000", "10000000"})
+    private int filmCount;
+    @Param({"100000"})
+    private int userCount;
+    @Param({"1.1"})
+    private double likeSkew;
+    private BenchmarkCatalog catalog;
+    private FilmService filmService;
+    private TrendingFilms trendingFilms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = new BenchmarkCatalog(storage, filmCount, userCount);
+        catalog.addSkewedLikes(userCount, likeSkew);
+        trendingFilms = new TrendingFilms(List.of(Duration.ofHours(24)), 100, Duration.ofSeconds(1));
+        Random random = new Random(42);
+        for (int i = 0; i < RECENT_LIKES; i++) {
+            trendingFilms.recordLike(1 + (long) (filmCount * Math.pow(random.nextDouble(), 3)));
+        }
+        trendingFilms.start();
+        filmService = new FilmService(catalog.getFilmStorage(), catalog.getUserStorage(), null, null,
+                trendingFilms);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        trendingFilms.stop();
+        catalog.close();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmService.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilmsOfYear() {
+        return filmService.getPopularFilms(10, 1999, null, null);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilmsOfDateRange() {
+        return filmService.getPopularFilms(10, null, LocalDate.of(1990, 7, 1), LocalDate.of(2005, 6, 30));
+    }
+
+    @Benchmark
+    public List<Film> getTrendingFilmsOfPrecomputedWindow() {
+        return filmService.getTrendingFilms(Duration.ofHours(24), 10);
+    }
+
+    @Benchmark
+    public List<Film> getTrendingFilmsOfOtherWindow() {
+        return filmService.getTrendingFilms(Duration.ofHours(6), 10);
+    }
+
+    @Benchmark
+    public boolean checkIsFilmInStorage() {
+        return catalog.getFilmStorage().checkIsFilmInStorage(randomFilmId());
+    }
+
+    @Benchmark
+    public Film updateFilm() {
+        return filmService.updateFilm(BenchmarkCatalog.newFilm(randomFilmId()));
+    }
+
+    private long randomFilmId() {
+        return ThreadLocalRandom.current().nextLong(1, filmCount + 1);
+    }
+}
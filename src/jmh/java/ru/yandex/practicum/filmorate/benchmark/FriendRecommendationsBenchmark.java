@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Friend recommendations on a power-law friendship graph: user 1 is the biggest hub, random users mostly sit
+ * in the long tail but are usually connected to a hub.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class FriendRecommendationsBenchmark {
+    @Param({BenchmarkCatalog.IN_MEMORY, BenchmarkCatalog.H2})
+    private String storage;
+    @Param({"100000", "1000000"})
+    private int userCount;
+    @Param({"10000"})
+    private int maxFriends;
+    @Param({"1.0"})
+    private double friendSkew;
+    private BenchmarkCatalog catalog;
+    private UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = new BenchmarkCatalog(storage, 0, userCount);
+        catalog.addSkewedFriendships(maxFriends, friendSkew);
+        userService = new UserService(catalog.getUserStorage(), null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Benchmark
+    public List<User> hubUser() {
+        return userService.getRecommendedFriends(1, 10);
+    }
+
+    @Benchmark
+    public List<User> randomUser() {
+        return userService.getRecommendedFriends(ThreadLocalRandom.current().nextLong(1, userCount + 1), 10);
+    }
+}
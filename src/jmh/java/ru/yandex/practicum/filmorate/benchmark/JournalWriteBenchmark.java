@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of logging likes to the write-ahead log: without a journal, with a journal that leaves flushing to the
+ * OS and with one that forces every group commit to disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class JournalWriteBenchmark {
+    @Param({"none", "no-fsync", "fsync"})
+    private String journalMode;
+    @Param({"100000"})
+    private int filmCount;
+    @Param({"1000000"})
+    private int userCount;
+    private BenchmarkCatalog catalog;
+    private StorageJournal journal;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        catalog = new BenchmarkCatalog(BenchmarkCatalog.IN_MEMORY, filmCount, userCount);
+        if (!"none".equals(journalMode)) {
+            directory = Files.createTempDirectory("filmorate-journal");
+            journal = new StorageJournal((InMemoryFilmStorage) catalog.getFilmStorage(),
+                    (InMemoryUserStorage) catalog.getUserStorage(), directory, "fsync".equals(journalMode),
+                    Duration.ofHours(1));
+            journal.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.stop();
+            RecoveryBenchmark.deleteDirectory(directory);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void likeSingleThread() {
+        like();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void likeEightThreads() {
+        like();
+    }
+
+    private void like() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        catalog.getFilmStorage().addLike(random.nextLong(1, filmCount + 1), random.nextLong(1, userCount + 1));
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import ru.yandex.practicum.filmorate.service.AsyncLikeWriter;
+import ru.yandex.practicum.filmorate.service.TrendingFilms;
+
+import java.time.Duration;
+import java.util.List;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures addLike throughput when every thread hits the same film and when likes are spread over the catalog,
+ * and the same hot-film storm going through {@link AsyncLikeWriter} with read-your-writes on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LikeContentionBenchmark {
+    private static final long HOT_FILM_ID = 1;
+    @Param({BenchmarkCatalog.IN_MEMORY, BenchmarkCatalog.H2})
+    private String storage;
+    @Param({"10000", "1000000"})
+    private int filmCount;
+    @Param({"1000000"})
+    private int userCount;
+    private BenchmarkCatalog catalog;
+    private AsyncLikeWriter likeWriter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = new BenchmarkCatalog(storage, filmCount, userCount);
+        likeWriter = new AsyncLikeWriter(catalog.getFilmStorage(),
+                new TrendingFilms(List.of(Duration.ofHours(24)), 100, Duration.ofSeconds(1)), 65536, 1024, Duration.ofMillis(1),
+                Duration.ofSeconds(1), true);
+        likeWriter.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        likeWriter.stop();
+        catalog.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void hotFilmSingleThread() {
+        likeHotFilm();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void hotFilmFourThreads() {
+        likeHotFilm();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void hotFilmAllCores() {
+        likeHotFilm();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void hotFilmAsyncAllCores() {
+        likeWriter.addLike(HOT_FILM_ID, ThreadLocalRandom.current().nextLong(1, userCount + 1));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void randomFilmAllCores() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        catalog.getFilmStorage().addLike(random.nextLong(1, filmCount + 1), random.nextLong(1, userCount + 1));
+    }
+
+    private void likeHotFilm() {
+        catalog.getFilmStorage().addLike(HOT_FILM_ID, ThreadLocalRandom.current().nextLong(1, userCount + 1));
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.StorageJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup of the journaled in-memory storages: a snapshot of a catalog with about ten million likes followed by
+ * a write-ahead log tail of {@code tailLikes} likes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RecoveryBenchmark {
+    @Param({"100000"})
+    private int filmCount;
+    @Param({"1000000"})
+    private int userCount;
+    @Param({"850000"})
+    private int maxLikes;
+    @Param({"0", "1000000"})
+    private int tailLikes;
+    private Path directory;
+    private StorageJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkCatalog catalog = new BenchmarkCatalog(BenchmarkCatalog.IN_MEMORY, filmCount, userCount);
+        catalog.addSkewedLikes(maxLikes, 1.0);
+        directory = Files.createTempDirectory("filmorate-recovery");
+        StorageJournal writer = new StorageJournal((InMemoryFilmStorage) catalog.getFilmStorage(),
+                (InMemoryUserStorage) catalog.getUserStorage(), directory, false, Duration.ofHours(1));
+        writer.start();
+        writer.snapshot();
+        Random random = new Random(42);
+        List<Like> batch = new ArrayList<>();
+        for (int i = 0; i < tailLikes; i++) {
+            batch.add(new Like(1 + random.nextInt(filmCount), 1 + random.nextInt(userCount)));
+            if (batch.size() == 10_000) {
+                catalog.getFilmStorage().addLikes(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        catalog.getFilmStorage().addLikes(batch);
+        writer.stop();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopJournal() throws IOException {
+        journal.stop();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public long recover() throws IOException {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        journal = new StorageJournal(filmStorage, new InMemoryUserStorage(), directory, false, Duration.ofHours(1));
+        journal.start();
+        return filmStorage.getLikesCount();
+    }
+
+    static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.controller.SummaryJsonCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ResponseSerializationBenchmark {
+    @Param({"100"})
+    private int count;
+    @Param({"1000", "100000"})
+    private int maxLikes;
+    private BenchmarkCatalog catalog;
+    private ObjectMapper objectMapper;
+    private ObjectMapper cachingObjectMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        catalog = new BenchmarkCatalog(BenchmarkCatalog.IN_MEMORY, 100_000, maxLikes);
+        catalog.addSkewedLikes(maxLikes, 1.1);
+        objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        cachingObjectMapper = objectMapper.copy().registerModule(new SummaryJsonCache(10_000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        catalog.close();
+    }
+
+    @Benchmark
+    public byte[] popularFilmsWithLikes() throws Exception {
+        return objectMapper.writeValueAsBytes(catalog.getFilmStorage().getPopularFilms(count));
+    }
+
+    @Benchmark
+    public byte[] popularFilmSummaries() throws Exception {
+        return objectMapper.writeValueAsBytes(toSummaries(catalog.getFilmStorage().getPopularFilms(count)));
+    }
+
+    @Benchmark
+    public byte[] popularFilmSummariesCached() throws Exception {
+        return cachingObjectMapper.writeValueAsBytes(toSummaries(catalog.getFilmStorage().getPopularFilms(count)));
+    }
+
+    private static List<FilmSummary> toSummaries(List<Film> films) {
+        return films.stream()
+                .map(FilmSummary::new)
+                .collect(Collectors.toList());
+    }
+}
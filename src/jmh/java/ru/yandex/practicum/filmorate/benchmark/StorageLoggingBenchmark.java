@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.LoggerFactory;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the storage hot path with its per-call logging switched off (INFO, the default) and on (DEBUG, the
+ * volume every call used to produce). Events are formatted and encoded but written to a discarding stream,
+ * so the numbers show the logging overhead itself rather than the speed of the console.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(4)
+public class StorageLoggingBenchmark {
+    @Param({"INFO", "DEBUG"})
+    private String storageLogLevel;
+    @Param({"sync", "async"})
+    private String appender;
+    @Param({"100000"})
+    private int filmCount;
+    private BenchmarkCatalog catalog;
+    private LoggerContext loggerContext;
+
+    @Setup
+    public void setUp() {
+        loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+        Logger root = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(newAppender());
+        loggerContext.getLogger("ru.yandex.practicum.filmorate.storage").setLevel(Level.toLevel(storageLogLevel));
+        catalog = new BenchmarkCatalog(BenchmarkCatalog.IN_MEMORY, filmCount, filmCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        catalog.close();
+        loggerContext.stop();
+    }
+
+    @Benchmark
+    public Optional<Film> getFilmById() {
+        return catalog.getFilmStorage().getFilmById(ThreadLocalRandom.current().nextLong(1, filmCount + 1));
+    }
+
+    @Benchmark
+    public void addLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        FilmStorage filmStorage = catalog.getFilmStorage();
+        filmStorage.addLike(random.nextLong(1, filmCount + 1), random.nextLong(1, filmCount + 1));
+    }
+
+    private Appender<ILoggingEvent> newAppender() {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d %5p [%t] %logger{39} : %m%n");
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> streamAppender = new OutputStreamAppender<>();
+        streamAppender.setContext(loggerContext);
+        streamAppender.setEncoder(encoder);
+        streamAppender.setOutputStream(OutputStream.nullOutputStream());
+        streamAppender.start();
+        if ("sync".equals(appender)) {
+            return streamAppender;
+        }
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(loggerContext);
+        asyncAppender.setQueueSize(8192);
+        asyncAppender.setDiscardingThreshold(0);
+        asyncAppender.setNeverBlock(true);
+        asyncAppender.addAppender(streamAppender);
+        asyncAppender.start();
+        return asyncAppender;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+final class CursorPages {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_LIMIT = 100;
+
+    private CursorPages() {
+    }
+
+    static <T> ResponseEntity<List<T>> toResponse(List<T> page, int limit, ToLongFunction<T> idExtractor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.size() == limit) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(idExtractor.applyAsLong(page.get(page.size() - 1))));
+        }
+        return response.body(page);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Strong ETags built from entity versions. Versions restart from zero with the process, so every tag is prefixed
+ * with a random epoch and tags issued before a restart never match. A list tag hashes the ids and versions of its
+ * members, so it changes whenever a member changes or the list itself is reordered.
+ */
+@Slf4j
+final class ETags {
+    static final String ANY = "*";
+    private static final String EPOCH = Long.toHexString(new SecureRandom().nextLong() >>> 1);
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int LIST_TAG_BYTES = 12;
+
+    private ETags() {
+    }
+
+    static String of(long version, boolean expanded) {
+        return String.format("\"%s-%s%s\"", EPOCH, version, expanded ? "-x" : "");
+    }
+
+    static <T> String of(List<T> members, ToLongFunction<T> id, ToLongFunction<T> version, boolean expanded) {
+        MessageDigest digest = sha256();
+        byte[] entry = new byte[2 * Long.BYTES];
+        for (T member : members) {
+            putLong(entry, 0, id.applyAsLong(member));
+            putLong(entry, Long.BYTES, version.applyAsLong(member));
+            digest.update(entry);
+        }
+        byte[] hash = digest.digest();
+        StringBuilder tag = new StringBuilder("\"").append(EPOCH).append("-l");
+        for (int i = 0; i < LIST_TAG_BYTES; i++) {
+            tag.append(HEX_DIGITS[(hash[i] >> 4) & 0xF]).append(HEX_DIGITS[hash[i] & 0xF]);
+        }
+        return tag.append(expanded ? "-x\"" : "\"").toString();
+    }
+
+    /**
+     * Returns the version an {@code If-Match} header refers to, or {@code null} when the update is unconditional.
+     */
+    static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        String prefix = "\"" + EPOCH + "-";
+        if (tag.startsWith(prefix) && tag.endsWith("\"")) {
+            String version = tag.substring(prefix.length(), tag.length() - 1);
+            if (version.endsWith("-x")) {
+                version = version.substring(0, version.length() - 2);
+            }
+            try {
+                return Long.parseLong(version);
+            } catch (NumberFormatException e) {
+                log.debug("The entity tag {} holds no version", ifMatch);
+            }
+        }
+        log.info("The entity tag {} is outdated or foreign", ifMatch);
+        throw new PreconditionFailedException(String.format("The entity tag %s does not match the current one",
+                ifMatch));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
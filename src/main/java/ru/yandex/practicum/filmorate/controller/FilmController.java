@@ -2,13 +2,29 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.service.BulkJsonProcessor;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 
 @Validated
@@ -24,46 +40,164 @@ public class FilmController {
     }
 
     @GetMapping
-    public List<Film> getAllFilms() {
-        log.info("Received a request to get a list of movies");
-        return filmService.getAllFilms();
+    public ResponseEntity<List<FilmSummary>> getAllFilms(@RequestParam(required = false) Long after,
+                                                         @RequestParam(required = false)
+                                                         @Positive(message = "The number of films in the page must be positive")
+                                                         Integer limit,
+                                                         @RequestParam(required = false) Integer year,
+                                                         @RequestParam(required = false) List<String> expand) {
+        boolean withLikes = Projections.isExpanded(expand, Projections.LIKES);
+        if (year != null) {
+            int pageSize = limit == null ? CursorPages.DEFAULT_LIMIT : limit;
+            log.debug("Received a request to get {} movies released in {} after id={}", pageSize, year, after);
+            return CursorPages.toResponse(Projections.toFilmSummaries(filmService.getFilmsByReleaseYear(year,
+                    after == null ? 0 : after, pageSize), withLikes), pageSize, FilmSummary::getId);
+        }
+        if (after == null && limit == null) {
+            log.debug("Received a request to get a list of movies");
+            return ResponseEntity.ok(Projections.toFilmSummaries(filmService.getAllFilms(), withLikes));
+        }
+        int pageSize = limit == null ? CursorPages.DEFAULT_LIMIT : limit;
+        log.debug("Received a request to get {} movies after id={}", pageSize, after);
+        return CursorPages.toResponse(Projections.toFilmSummaries(filmService.getFilms(after == null ? 0 : after,
+                pageSize), withLikes), pageSize, FilmSummary::getId);
+    }
+
+    @GetMapping(params = "ids")
+    public List<FilmSummary> getFilmsByIds(@RequestParam List<Long> ids,
+                                           @RequestParam(required = false) List<String> expand) {
+        log.debug("Received a request to get {} movies by id", ids.size());
+        return Projections.toFilmSummaries(filmService.getFilmsByIds(ids),
+                Projections.isExpanded(expand, Projections.LIKES));
+    }
+
+    @GetMapping(params = {"stream=true", "!ids"}, produces = BulkJsonProcessor.NDJSON)
+    public StreamingResponseBody streamAllFilms() {
+        log.debug("Received a request to stream a list of movies");
+        return filmService::exportFilms;
     }
 
     @GetMapping("{id}")
-    public Film getFilmById(@PathVariable("id") int filmId) {
-        log.info("Received a request to add a movie id={}", filmId);
-        return filmService.getFilmById(filmId);
+    public FilmSummary getFilmById(@PathVariable("id") long filmId,
+                                   @RequestParam(required = false) List<String> expand,
+                                   WebRequest request) {
+        log.debug("Received a request to add a movie id={}", filmId);
+        boolean withLikes = Projections.isExpanded(expand, Projections.LIKES);
+        Film film = filmService.getFilmById(filmId);
+        if (request.checkNotModified(ETags.of(film.getVersion(), withLikes))) {
+            return null;
+        }
+        return Projections.toSummary(film, withLikes);
     }
 
     @PostMapping
-    public Film addFilm(@Valid @RequestBody Film newFilm) {
-        log.info("Received a request to add a new movie");
-        return filmService.addFilm(newFilm);
+    public FilmSummary addFilm(@Valid @RequestBody Film newFilm) {
+        log.debug("Received a request to add a new movie");
+        return new FilmSummary(filmService.addFilm(newFilm));
     }
 
     @PutMapping
-    public Film updateFilm(@Valid @RequestBody Film updatedFilm) {
-        log.info("Received a request to upate the movie id={}", updatedFilm.getId());
-        return filmService.updateFilm(updatedFilm);
+    public ResponseEntity<FilmSummary> updateFilm(@Valid @RequestBody Film updatedFilm,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                  String ifMatch) {
+        log.debug("Received a request to upate the movie id={}", updatedFilm.getId());
+        Film film = filmService.updateFilm(updatedFilm, ETags.parseVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ETags.of(film.getVersion(), false))
+                .body(new FilmSummary(film));
     }
 
     @PutMapping("{id}/like/{userId}")
-    public void addLike(@PathVariable("id") int filmId, @PathVariable int userId) {
-        log.info("Received a request to add a like to the movie id={} from the user id={}", filmId, userId);
+    public void addLike(@PathVariable("id") long filmId, @PathVariable long userId) {
+        log.debug("Received a request to add a like to the movie id={} from the user id={}", filmId, userId);
         filmService.addLike(filmId, userId);
     }
 
     @DeleteMapping("{id}/like/{userId}")
-    public void deleteLike(@PathVariable("id") int filmId, @PathVariable int userId) {
-        log.info("Received a request to delete a movie like id={} from the user id={}", filmId, userId);
+    public void deleteLike(@PathVariable("id") long filmId, @PathVariable long userId) {
+        log.debug("Received a request to delete a movie like id={} from the user id={}", filmId, userId);
         filmService.deleteLike(filmId, userId);
     }
 
+    @PutMapping("likes")
+    public void addLikes(@RequestBody List<@Valid Like> likes) {
+        log.debug("Received a request to add {} likes", likes.size());
+        filmService.addLikes(likes);
+    }
+
+    @DeleteMapping("likes")
+    public void deleteLikes(@RequestBody List<@Valid Like> likes) {
+        log.debug("Received a request to delete {} likes", likes.size());
+        filmService.deleteLikes(likes);
+    }
+
     @GetMapping("popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10")
-                                      @Positive(message = "The number of films in the list must be positive")
-                                      int count) {
-        log.info("Received a request to get a list from {} movies with the most likes", count);
-        return filmService.getPopularFilms(count);
+    public List<FilmSummary> getPopularFilms(@RequestParam(defaultValue = "10")
+                                             @Positive(message = "The number of films in the list must be positive")
+                                             int count,
+                                             @RequestParam(required = false) Integer year,
+                                             @RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                             @RequestParam(required = false) List<String> expand,
+                                             WebRequest request) {
+        log.debug("Received a request to get a list from {} movies with the most likes", count);
+        boolean withLikes = Projections.isExpanded(expand, Projections.LIKES);
+        List<Film> films = filmService.getPopularFilms(count, year, from, to);
+        if (request.checkNotModified(ETags.of(films, Film::getId, Film::getVersion, withLikes))) {
+            return null;
+        }
+        return Projections.toFilmSummaries(films, withLikes);
+    }
+
+    @GetMapping("trending")
+    public List<FilmSummary> getTrendingFilms(@RequestParam(defaultValue = "24h") String window,
+                                              @RequestParam(defaultValue = "10")
+                                              @Positive(message = "The number of films in the list must be positive")
+                                              int count,
+                                              @RequestParam(required = false) List<String> expand) {
+        log.debug("Received a request to get a list from {} movies with the most likes over {}", count, window);
+        return Projections.toFilmSummaries(filmService.getTrendingFilms(parseWindow(window), count),
+                Projections.isExpanded(expand, Projections.LIKES));
+    }
+
+    @GetMapping("search")
+    public List<FilmSummary> searchFilms(@RequestParam("q") String query,
+                                         @RequestParam(defaultValue = "name,description") List<String> by,
+                                         @RequestParam(defaultValue = "10")
+                                         @Positive(message = "The number of films in the list must be positive")
+                                         int count,
+                                         @RequestParam(required = false) List<String> expand) {
+        log.debug("Received a request to search {} movies by {} for \"{}\"", count, by, query);
+        return Projections.toFilmSummaries(filmService.searchFilms(query, by, count),
+                Projections.isExpanded(expand, Projections.LIKES));
+    }
+
+    @PostMapping(value = "bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkJsonProcessor.NDJSON})
+    public BulkImportResult importFilms(InputStream body) throws IOException {
+        log.info("Received a request to import movies in bulk");
+        return filmService.importFilms(body);
+    }
+
+    @PostMapping(value = "likes/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkJsonProcessor.NDJSON})
+    public BulkImportResult importLikes(InputStream body) throws IOException {
+        log.info("Received a request to import likes in bulk");
+        return filmService.importLikes(body);
+    }
+
+    @GetMapping(value = "export", produces = BulkJsonProcessor.NDJSON)
+    public StreamingResponseBody exportFilms() {
+        log.info("Received a request to export all movies");
+        return filmService::exportFilms;
+    }
+
+    private static Duration parseWindow(String window) {
+        try {
+            return DurationStyle.detectAndParse(window);
+        } catch (IllegalArgumentException e) {
+            log.info("The trending window {} is incorrect", window);
+            throw new ValidationException(String.format("The trending window %s is incorrect", window));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.FilmWithLikes;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserSummary;
+import ru.yandex.practicum.filmorate.model.UserWithFriends;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Maps films and users to the summaries returned by the API. Summaries carry only the number of likes or friends;
+ * the id sets themselves are included on request with {@code expand=likes} or {@code expand=friends}.
+ */
+@Slf4j
+final class Projections {
+    static final String LIKES = "likes";
+    static final String FRIENDS = "friends";
+
+    private Projections() {
+    }
+
+    static boolean isExpanded(List<String> expand, String field) {
+        if (expand == null) {
+            return false;
+        }
+        for (String expandedField : expand) {
+            if (!field.equalsIgnoreCase(expandedField.trim())) {
+                log.info("Unknown field to expand {}", expandedField);
+                throw new ValidationException(String.format("Unknown field to expand %s. Only %s can be expanded",
+                        expandedField, field));
+            }
+        }
+        return !expand.isEmpty();
+    }
+
+    static FilmSummary toSummary(Film film, boolean withLikes) {
+        return withLikes ? new FilmWithLikes(film) : new FilmSummary(film);
+    }
+
+    static List<FilmSummary> toFilmSummaries(List<Film> films, boolean withLikes) {
+        return films.stream()
+                .map(film -> toSummary(film, withLikes))
+                .collect(Collectors.toList());
+    }
+
+    static UserSummary toSummary(User user, boolean withFriends) {
+        return withFriends ? new UserWithFriends(user) : new UserSummary(user);
+    }
+
+    static List<UserSummary> toUserSummaries(List<User> users, boolean withFriends) {
+        return users.stream()
+                .map(user -> toSummary(user, withFriends))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one line per sampled request. The sample rate is looked up by the matched endpoint pattern,
+ * server errors are always traced.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.tracing.enabled", havingValue = "true")
+public class RequestTracingFilter extends OncePerRequestFilter {
+    private final TracingProperties tracingProperties;
+
+    @Autowired
+    public RequestTracingFilter(TracingProperties tracingProperties) {
+        this.tracingProperties = tracingProperties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long startTime = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String endpoint = pattern != null ? pattern.toString() : request.getRequestURI();
+            if (response.getStatus() >= 500 || isSampled(endpoint)) {
+                log.info("method={} endpoint={} uri={} status={} durationMicros={}", request.getMethod(), endpoint,
+                        request.getRequestURI(), response.getStatus(),
+                        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+            }
+        }
+    }
+
+    private boolean isSampled(String endpoint) {
+        double sampleRate = tracingProperties.getSampleRate(endpoint);
+        return sampleRate >= 1 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
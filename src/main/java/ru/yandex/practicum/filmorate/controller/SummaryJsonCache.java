@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.UserSummary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Jackson module that keeps the serialized JSON of film and user summaries. The cache is keyed by the summary
+ * itself, so any change to a film or a user, likes and friends counts included, produces a different key and the
+ * stale bytes are never served again; they simply age out. Summaries with expanded id sets are not cached.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class SummaryJsonCache extends SimpleModule implements MeterBinder {
+    private final Cache<Object, SerializedString> summaries;
+
+    @Autowired
+    public SummaryJsonCache(@Value("${filmorate.cache.summaries.maximum-size}") long maximumSize) {
+        super("summary-json-cache");
+        this.summaries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDescription,
+                                                      JsonSerializer<?> serializer) {
+                Class<?> type = beanDescription.getBeanClass();
+                if (type == FilmSummary.class || type == UserSummary.class) {
+                    return new CachingSerializer((JsonSerializer<Object>) serializer);
+                }
+                return serializer;
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, summaries, "summaryJson");
+    }
+
+    public Cache<Object, SerializedString> getSummariesCache() {
+        return summaries;
+    }
+
+    private class CachingSerializer extends JsonSerializer<Object> implements ResolvableSerializer {
+        private final JsonSerializer<Object> serializer;
+
+        private CachingSerializer(JsonSerializer<Object> serializer) {
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void resolve(SerializerProvider provider) throws JsonMappingException {
+            if (serializer instanceof ResolvableSerializer) {
+                ((ResolvableSerializer) serializer).resolve(provider);
+            }
+        }
+
+        @Override
+        public void serialize(Object summary, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeRawValue(summaries.get(summary, key -> render(key, generator, provider)));
+        }
+
+        private SerializedString render(Object summary, JsonGenerator generator, SerializerProvider provider) {
+            SegmentedStringWriter writer = new SegmentedStringWriter(new BufferRecycler());
+            ObjectCodec codec = generator.getCodec();
+            JsonFactory factory = codec != null ? codec.getFactory() : new JsonFactory();
+            try (JsonGenerator summaryGenerator = factory.createGenerator(writer)) {
+                serializer.serialize(summary, summaryGenerator, provider);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            SerializedString json = new SerializedString(writer.getAndClear());
+            json.asUnquotedUTF8();
+            return json;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "filmorate.tracing")
+public class TracingProperties {
+    private double sampleRate;
+    private Map<String, Double> endpoints = new HashMap<>();
+
+    public double getSampleRate(String endpoint) {
+        return endpoints.getOrDefault(endpoint, sampleRate);
+    }
+}
@@ -2,70 +2,199 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserSummary;
+import ru.yandex.practicum.filmorate.service.BulkJsonProcessor;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
+@Validated
 @Slf4j
 @RestController
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService) {
         this.userService = userService;
+        this.filmService = filmService;
     }
 
     @PostMapping
-    public User addUser(@Valid @RequestBody User newUser) {
-        log.info("Received a request to add a new user");
-        return userService.addUser(newUser);
+    public UserSummary addUser(@Valid @RequestBody User newUser) {
+        log.debug("Received a request to add a new user");
+        return new UserSummary(userService.addUser(newUser));
     }
 
     @PutMapping
-    public User updateUser(@Valid @RequestBody User updatedUser) {
-        log.info("Received a request to updte user data id={}", updatedUser.getId());
-        return userService.updateUser(updatedUser);
+    public ResponseEntity<UserSummary> updateUser(@Valid @RequestBody User updatedUser,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                  String ifMatch) {
+        log.debug("Received a request to updte user data id={}", updatedUser.getId());
+        User user = userService.updateUser(updatedUser, ETags.parseVersion(ifMatch));
+        return ResponseEntity.ok()
+                .eTag(ETags.of(user.getVersion(), false))
+                .body(new UserSummary(user));
     }
 
     @GetMapping("{id}")
-    public User getUserById(@PathVariable("id") int userId) {
-        log.info("A request to receive a user has been received id={}", userId);
-        return userService.getUserById(userId);
+    public UserSummary getUserById(@PathVariable("id") long userId,
+                                   @RequestParam(required = false) List<String> expand,
+                                   WebRequest request) {
+        log.debug("A request to receive a user has been received id={}", userId);
+        boolean withFriends = Projections.isExpanded(expand, Projections.FRIENDS);
+        User user = userService.getUserById(userId);
+        if (request.checkNotModified(ETags.of(user.getVersion(), withFriends))) {
+            return null;
+        }
+        return Projections.toSummary(user, withFriends);
     }
 
     @GetMapping
-    public List<User> getAllUsers() {
-        log.info("Received a request to get a list of users");
-        return userService.getAllUsers();
+    public ResponseEntity<List<UserSummary>> getAllUsers(@RequestParam(required = false) Long after,
+                                                         @RequestParam(required = false)
+                                                         @Positive(message = "The number of users in the page must be positive")
+                                                         Integer limit,
+                                                         @RequestParam(required = false) List<String> expand) {
+        boolean withFriends = Projections.isExpanded(expand, Projections.FRIENDS);
+        if (after == null && limit == null) {
+            log.debug("Received a request to get a list of users");
+            return ResponseEntity.ok(Projections.toUserSummaries(userService.getAllUsers(), withFriends));
+        }
+        int pageSize = limit == null ? CursorPages.DEFAULT_LIMIT : limit;
+        log.debug("Received a request to get {} users after id={}", pageSize, after);
+        return CursorPages.toResponse(Projections.toUserSummaries(userService.getUsers(after == null ? 0 : after,
+                pageSize), withFriends), pageSize, UserSummary::getId);
+    }
+
+    @GetMapping(params = "ids")
+    public List<UserSummary> getUsersByIds(@RequestParam List<Long> ids,
+                                           @RequestParam(required = false) List<String> expand) {
+        log.debug("Received a request to get {} users by id", ids.size());
+        return Projections.toUserSummaries(userService.getUsersByIds(ids),
+                Projections.isExpanded(expand, Projections.FRIENDS));
+    }
+
+    @GetMapping(params = {"stream=true", "!ids"}, produces = BulkJsonProcessor.NDJSON)
+    public StreamingResponseBody streamAllUsers() {
+        log.debug("Received a request to stream a list of users");
+        return userService::exportUsers;
     }
 
     @PutMapping("{id}/friends/{friendId}")
-    public void addFriend(@PathVariable("id") int userId, @PathVariable int friendId) {
-        log.info("Received a request to add a user id={} as friends to the user id={}", friendId, userId);
+    public void addFriend(@PathVariable("id") long userId, @PathVariable long friendId) {
+        log.debug("Received a request to add a user id={} as friends to the user id={}", friendId, userId);
         userService.addFriend(userId, friendId);
     }
 
     @DeleteMapping("{id}/friends/{friendId}")
-    public void deleteFriend(@PathVariable("id") int userId, @PathVariable("friendId") int friendId) {
-        log.info("Received a request to delete the user id={} from the user's friends id={}", friendId, userId);
+    public void deleteFriend(@PathVariable("id") long userId, @PathVariable("friendId") long friendId) {
+        log.debug("Received a request to delete the user id={} from the user's friends id={}", friendId, userId);
         userService.deleteFriend(userId, friendId);
     }
 
+    @PutMapping("friends")
+    public void addFriendships(@RequestBody List<@Valid Friendship> friendships) {
+        log.debug("Received a request to add {} friendships", friendships.size());
+        userService.addFriendships(friendships);
+    }
+
+    @DeleteMapping("friends")
+    public void deleteFriendships(@RequestBody List<@Valid Friendship> friendships) {
+        log.debug("Received a request to delete {} friendships", friendships.size());
+        userService.deleteFriendships(friendships);
+    }
+
     @GetMapping("{id}/friends")
     @ResponseBody
-    public List<User> getListOfFriends(@PathVariable("id") int userId) {
-        log.info("Received a request to get a list of the user's friends id={}", userId);
-        return userService.getListOfFriends(userId);
+    public List<UserSummary> getListOfFriends(@PathVariable("id") long userId,
+                                              @RequestParam(required = false) List<String> expand,
+                                              WebRequest request) {
+        log.debug("Received a request to get a list of the user's friends id={}", userId);
+        boolean withFriends = Projections.isExpanded(expand, Projections.FRIENDS);
+        List<User> friends = userService.getListOfFriends(userId);
+        if (request.checkNotModified(ETags.of(friends, User::getId, User::getVersion, withFriends))) {
+            return null;
+        }
+        return Projections.toUserSummaries(friends, withFriends);
     }
 
     @GetMapping("{id}/friends/common/{otherId}")
-    List<User> getListOfCommonFriends(@PathVariable("id") int userId, @PathVariable("otherId") int friendId) {
-        log.info("Received a request to get a shared list of users' friends id={} и id={}", userId, friendId);
-        return userService.getListOfCommonFriends(userId, friendId);
+    ResponseEntity<List<UserSummary>> getListOfCommonFriends(@PathVariable("id") long userId,
+                                                             @PathVariable("otherId") long friendId,
+                                                             @RequestParam(required = false) Long after,
+                                                             @RequestParam(required = false)
+                                                             @Positive(message = "The number of users in the list must be positive")
+                                                             Integer limit,
+                                                             @RequestParam(required = false) List<String> expand) {
+        boolean withFriends = Projections.isExpanded(expand, Projections.FRIENDS);
+        if (after == null && limit == null) {
+            log.debug("Received a request to get a shared list of users' friends id={} и id={}", userId, friendId);
+            return ResponseEntity.ok(Projections.toUserSummaries(userService.getListOfCommonFriends(userId, friendId),
+                    withFriends));
+        }
+        int pageSize = limit == null ? CursorPages.DEFAULT_LIMIT : limit;
+        log.debug("Received a request to get {} common friends of the users id={} и id={} after id={}", pageSize,
+                userId, friendId, after);
+        return CursorPages.toResponse(Projections.toUserSummaries(userService.getListOfCommonFriends(userId, friendId,
+                after == null ? 0 : after, pageSize), withFriends), pageSize, UserSummary::getId);
+    }
+
+    @GetMapping("{id}/recommendations")
+    public List<UserSummary> getRecommendedFriends(@PathVariable("id") long userId,
+                                                   @RequestParam(defaultValue = "10")
+                                                   @Positive(message = "The number of users in the list must be positive")
+                                                   int count,
+                                                   @RequestParam(required = false) List<String> expand) {
+        log.debug("Received a request to get {} recommended friends for the user id={}", count, userId);
+        return Projections.toUserSummaries(userService.getRecommendedFriends(userId, count),
+                Projections.isExpanded(expand, Projections.FRIENDS));
+    }
+
+    @GetMapping("{id}/film-recommendations")
+    public List<FilmSummary> getRecommendedFilms(@PathVariable("id") long userId,
+                                                 @RequestParam(defaultValue = "10")
+                                                 @Positive(message = "The number of films in the list must be positive")
+                                                 int count,
+                                                 @RequestParam(required = false) List<String> expand) {
+        log.debug("Received a request to get {} recommended movies for the user id={}", count, userId);
+        return Projections.toFilmSummaries(filmService.getRecommendedFilms(userId, count),
+                Projections.isExpanded(expand, Projections.LIKES));
+    }
+
+    @PostMapping(value = "bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkJsonProcessor.NDJSON})
+    public BulkImportResult importUsers(InputStream body) throws IOException {
+        log.info("Received a request to import users in bulk");
+        return userService.importUsers(body);
+    }
+
+    @PostMapping(value = "friends/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, BulkJsonProcessor.NDJSON})
+    public BulkImportResult importFriendships(InputStream body) throws IOException {
+        log.info("Received a request to import friendships in bulk");
+        return userService.importFriendships(body);
+    }
+
+    @GetMapping(value = "export", produces = BulkJsonProcessor.NDJSON)
+    public StreamingResponseBody exportUsers() {
+        log.info("Received a request to export all users");
+        return userService::exportUsers;
     }
 }
\ No newline at end of file
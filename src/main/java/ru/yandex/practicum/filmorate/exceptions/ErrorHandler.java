@@ -1,51 +1,96 @@
 package ru.yandex.practicum.filmorate.exceptions;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import ru.yandex.practicum.filmorate.controller.FilmController;
 import ru.yandex.practicum.filmorate.controller.UserController;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmDbStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.UserDbStorage;
 
 import javax.validation.ConstraintViolationException;
 
 @RestControllerAdvice(assignableTypes = {FilmController.class, UserController.class,
         UserService.class, FilmService.class,
-        InMemoryFilmStorage.class, InMemoryUserStorage.class})
+        InMemoryFilmStorage.class, InMemoryUserStorage.class,
+        FilmDbStorage.class, UserDbStorage.class})
 public class ErrorHandler {
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ErrorHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(ValidationException.class)
     public String handlerOfValidationException(final ValidationException e) {
+        countError(e);
         return String.format("Error. %s", e.getMessage());
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public String handlerOfMethodArgumentNotValidException(final MethodArgumentNotValidException e) {
+        countError(e);
         return String.format("Error. %s", e.getMessage());
     }
 
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(ConstraintViolationException.class)
     public String handlerOfConstraintViolationException(final ConstraintViolationException e) {
+        countError(e);
+        return String.format("Error. %s", e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler({MethodArgumentTypeMismatchException.class, MissingServletRequestParameterException.class,
+            HttpMessageNotReadableException.class})
+    public String handlerOfRequestParameterException(final Exception e) {
+        countError(e);
         return String.format("Error. %s", e.getMessage());
     }
 
     @ResponseStatus(HttpStatus.NOT_FOUND)
     @ExceptionHandler(ObjectNotFoundException.class)
     public String handlerOfObjectNotFoundException(final ObjectNotFoundException e) {
+        countError(e);
+        return String.format("Error. %s", e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ExceptionHandler(OverloadedException.class)
+    public String handlerOfOverloadedException(final OverloadedException e) {
+        countError(e);
+        return String.format("Error. %s", e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler(PreconditionFailedException.class)
+    public String handlerOfPreconditionFailedException(final PreconditionFailedException e) {
+        countError(e);
         return String.format("Error. %s", e.getMessage());
     }
 
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public String handlerExceptions(final Exception e) {
+        countError(e);
         return String.format("Error. %s", e.getMessage());
     }
-}
\ No newline at end of file
+
+    private void countError(Exception e) {
+        meterRegistry.counter("filmorate.errors", "exception", e.getClass().getSimpleName()).increment();
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.function.Predicate;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        // gauges read the counters on every scrape, timing them would only add noise
+        Predicate<ProceedingJoinPoint> isCounter = joinPoint -> joinPoint.getSignature().getName().endsWith("Count");
+        return new TimedAspect(registry, isCounter);
+    }
+
+    @Bean
+    public MeterBinder storageMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        return registry -> {
+            Gauge.builder("filmorate.films", filmStorage, FilmStorage::getFilmsCount)
+                    .description("Number of stored movies")
+                    .register(registry);
+            Gauge.builder("filmorate.likes", filmStorage, FilmStorage::getLikesCount)
+                    .description("Number of likes over all movies")
+                    .register(registry);
+            Gauge.builder("filmorate.users", userStorage, UserStorage::getUsersCount)
+                    .description("Number of stored users")
+                    .register(registry);
+            Gauge.builder("filmorate.friendships", userStorage, UserStorage::getFriendshipsCount)
+                    .description("Number of friendships, each pair of friends counted once")
+                    .register(registry);
+        };
+    }
+}
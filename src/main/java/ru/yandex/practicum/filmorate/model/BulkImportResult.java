@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class BulkImportResult {
+    private long received;
+    private long imported;
+    private List<RecordError> errors = new ArrayList<>();
+
+    public void addError(long index, String message) {
+        errors.add(new RecordError(index, message));
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class RecordError {
+        private long index;
+        private String message;
+    }
+}
@@ -1,44 +1,42 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import ru.yandex.practicum.filmorate.util.IdSet;
 
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
-import java.util.HashSet;
-import java.util.Set;
+import java.time.LocalDate;
 
 @Data
 @EqualsAndHashCode(of = {"id"})
 public class Film {
-    private static int identificator = 0;
-    private int id;
+    private long id;
     @NotBlank(message = "The name of the movie is not specified")
     private String name;
     @Size(max = 200, message = "The length of the description should be from 0 to 200 characters")
     private String description;
     @NotNull(message = "No release date specified")
-    private String releaseDate;
+    private LocalDate releaseDate;
     @Min(1)
     private long duration;
     private int rate;
-    private Set<Integer> setOfLikes;
-
-    public void generateAndSetId() {
-        setId(++identificator);
-    }
+    private IdSet setOfLikes;
+    @JsonIgnore
+    private volatile long version;
 
     public void generateSetOfLikes() {
-        this.setOfLikes = new HashSet<>();
+        this.setOfLikes = new IdSet();
     }
 
-    public void addLike(int userId) {
-        setOfLikes.add(userId);
+    public boolean addLike(long userId) {
+        return setOfLikes.add(userId);
     }
 
-    public void deleteLike(int userId) {
-        setOfLikes.remove(userId);
+    public boolean deleteLike(long userId) {
+        return setOfLikes.remove(userId);
     }
 }
\ No newline at end of file
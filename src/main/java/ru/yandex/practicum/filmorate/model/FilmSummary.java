@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class FilmSummary {
+    private final long id;
+    private final String name;
+    private final String description;
+    private final LocalDate releaseDate;
+    private final long duration;
+    private final int rate;
+    private final int likesCount;
+
+    public FilmSummary(Film film) {
+        this.id = film.getId();
+        this.name = film.getName();
+        this.description = film.getDescription();
+        this.releaseDate = film.getReleaseDate();
+        this.duration = film.getDuration();
+        this.rate = film.getRate();
+        this.likesCount = film.getSetOfLikes().size();
+    }
+}
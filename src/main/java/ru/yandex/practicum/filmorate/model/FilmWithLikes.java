@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class FilmWithLikes extends FilmSummary {
+    private final IdSet setOfLikes;
+
+    public FilmWithLikes(Film film) {
+        super(film);
+        this.setOfLikes = film.getSetOfLikes();
+    }
+}
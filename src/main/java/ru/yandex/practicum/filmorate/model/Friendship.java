@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Positive;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Friendship {
+    @Positive(message = "User id must be positive")
+    private long userId;
+    @Positive(message = "Friend id must be positive")
+    private long friendId;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Positive;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Like {
+    @Positive(message = "Film id must be positive")
+    private long filmId;
+    @Positive(message = "User id must be positive")
+    private long userId;
+}
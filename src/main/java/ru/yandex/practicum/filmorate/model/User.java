@@ -1,40 +1,39 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import ru.yandex.practicum.filmorate.util.IdSet;
 
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
-import java.util.HashSet;
-import java.util.Set;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
 
 @Data
 @EqualsAndHashCode(of = {"id"})
 public class User {
-    private static int identificator = 0;
-    private int id;
+    private long id;
     @Email(message = "Invalid specified email")
     private String email;
     @NotBlank(message = "Login not specified")
     private String login;
     private String name;
-    @NotBlank(message = "Date of birth not specified")
-    private String birthday;
-    private Set<Integer> setOfFriends;
-
-    public void generateAndSetId() {
-        setId(++identificator);
-    }
+    @NotNull(message = "Date of birth not specified")
+    private LocalDate birthday;
+    private IdSet setOfFriends;
+    @JsonIgnore
+    private volatile long version;
 
     public void generateSetOfFriends() {
-        this.setOfFriends = new HashSet<>();
+        this.setOfFriends = new IdSet();
     }
 
-    public void addFriend(int friendId) {
-        setOfFriends.add(friendId);
+    public boolean addFriend(long friendId) {
+        return setOfFriends.add(friendId);
     }
 
-    public void deleteFriend(int friend) {
-        setOfFriends.remove(friend);
+    public boolean deleteFriend(long friend) {
+        return setOfFriends.remove(friend);
     }
 }
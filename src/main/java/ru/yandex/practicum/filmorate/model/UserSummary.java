@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+public class UserSummary {
+    private final long id;
+    private final String email;
+    private final String login;
+    private final String name;
+    private final LocalDate birthday;
+    private final int friendsCount;
+
+    public UserSummary(User user) {
+        this.id = user.getId();
+        this.email = user.getEmail();
+        this.login = user.getLogin();
+        this.name = user.getName();
+        this.birthday = user.getBirthday();
+        this.friendsCount = user.getSetOfFriends().size();
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class UserWithFriends extends UserSummary {
+    private final IdSet setOfFriends;
+
+    public UserWithFriends(User user) {
+        super(user);
+        this.setOfFriends = user.getSetOfFriends();
+    }
+}
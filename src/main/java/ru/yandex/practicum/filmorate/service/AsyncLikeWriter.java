@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.OverloadedException;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes likes and unlikes off the request threads. Requests append to a bounded queue, a single writer thread
+ * drains it in batches, keeps only the last operation for every film and user pair and applies them with one
+ * {@link FilmStorage#deleteLikes} and one {@link FilmStorage#addLikes} call, so a hot film is locked and re-ranked
+ * once per batch instead of once per like. Only the likes that actually changed are counted as trending. Likes
+ * sent together by one request reserve queue capacity for all of them before any is queued, so a batch is either
+ * queued whole or rejected whole, and then awaited as a whole. A full queue makes requests wait up to the offer
+ * timeout and then fail with {@link OverloadedException}. A batch that fails, even with an {@link Error}, fails
+ * the requests waiting for it and leaves the writer running.
+ * Without read-your-writes a batch lingers up to the flush interval to collect more likes; with it a request
+ * returns only after its batch has been applied, so the batch is flushed as soon as the queue runs dry.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.async.enabled", havingValue = "true")
+public class AsyncLikeWriter implements MeterBinder {
+    private final FilmStorage filmStorage;
+    private final TrendingFilms trendingFilms;
+    private final BlockingQueue<LikeEvent> queue;
+    private final Semaphore freeSlots;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final boolean readYourWrites;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    @Autowired
+    public AsyncLikeWriter(FilmStorage filmStorage,
+                           TrendingFilms trendingFilms,
+                           @Value("${filmorate.likes.async.queue-capacity}") int queueCapacity,
+                           @Value("${filmorate.likes.async.batch-size}") int batchSize,
+                           @Value("${filmorate.likes.async.flush-interval}") Duration flushInterval,
+                           @Value("${filmorate.likes.async.offer-timeout}") Duration offerTimeout,
+                           @Value("${filmorate.likes.async.read-your-writes}") boolean readYourWrites) {
+        this.filmStorage = filmStorage;
+        this.trendingFilms = trendingFilms;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.freeSlots = new Semaphore(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.readYourWrites = readYourWrites;
+        this.writerThread = new Thread(this::writeBatches, "like-writer");
+        writerThread.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.join();
+    }
+
+    public void addLike(long filmId, long userId) {
+        submit(List.of(new Like(filmId, userId)), true);
+    }
+
+    public void deleteLike(long filmId, long userId) {
+        submit(List.of(new Like(filmId, userId)), false);
+    }
+
+    public void addLikes(List<Like> likes) {
+        submit(likes, true);
+    }
+
+    public void deleteLikes(List<Like> likes) {
+        submit(likes, false);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("filmorate.likes.queue", queue, BlockingQueue::size)
+                .description("Number of likes and unlikes waiting for the writer")
+                .register(registry);
+    }
+
+    private void submit(List<Like> likes, boolean isLike) {
+        List<LikeEvent> events = new ArrayList<>(likes.size());
+        try {
+            if (!running || !freeSlots.tryAcquire(likes.size(), offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                log.info("The like queue is full, {} like operations rejected", likes.size());
+                throw new OverloadedException("Too many likes are waiting to be saved, please retry later");
+            }
+            for (Like like : likes) {
+                LikeEvent event = new LikeEvent(like, isLike, readYourWrites);
+                queue.add(event);
+                events.add(event);
+            }
+            for (LikeEvent event : events) {
+                if (event.applied != null) {
+                    event.applied.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Interrupted while waiting for the like queue");
+        }
+    }
+
+    private void writeBatches() {
+        List<LikeEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                LikeEvent first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remainingNanos = deadline - System.nanoTime();
+                    if (batch.size() == batchSize || remainingNanos <= 0 || readYourWrites && queue.isEmpty()) {
+                        break;
+                    }
+                    LikeEvent next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                log.error("Failed to apply a batch of {} likes", batch.size(), e);
+                batch.forEach(event -> event.fail(e));
+            } finally {
+                freeSlots.release(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<LikeEvent> batch) {
+        Map<Like, Boolean> latestOperations = new LinkedHashMap<>();
+        batch.forEach(event -> latestOperations.put(event.like, event.isLike));
+        List<Like> addedLikes = new ArrayList<>();
+        List<Like> deletedLikes = new ArrayList<>();
+        latestOperations.forEach((like, isLike) -> (isLike ? addedLikes : deletedLikes).add(like));
+        if (!deletedLikes.isEmpty()) {
+            filmStorage.deleteLikes(deletedLikes).forEach(like -> trendingFilms.recordUnlike(like.getFilmId()));
+        }
+        if (!addedLikes.isEmpty()) {
+            filmStorage.addLikes(addedLikes).forEach(like -> trendingFilms.recordLike(like.getFilmId()));
+        }
+        log.debug("Applied {} like operations as {} changes", batch.size(), latestOperations.size());
+        batch.forEach(LikeEvent::complete);
+    }
+
+    private static final class LikeEvent {
+        private final Like like;
+        private final boolean isLike;
+        private final CompletableFuture<Void> applied;
+
+        private LikeEvent(Like like, boolean isLike, boolean isAwaited) {
+            this.like = like;
+            this.isLike = isLike;
+            this.applied = isAwaited ? new CompletableFuture<>() : null;
+        }
+
+        private void complete() {
+            if (applied != null) {
+                applied.complete(null);
+            }
+        }
+
+        private void fail(Throwable e) {
+            if (applied != null) {
+                applied.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads JSON arrays or newline-delimited JSON record by record and hands validated records to the storage
+ * in batches, and writes records back out as newline-delimited JSON without collecting them into a list.
+ */
+@Slf4j
+@Component
+public class BulkJsonProcessor {
+    public static final String NDJSON = "application/x-ndjson";
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+
+    @Autowired
+    public BulkJsonProcessor(ObjectMapper objectMapper, Validator validator,
+                             @Value("${filmorate.bulk.batch-size}") int batchSize) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    public <T> BulkImportResult importRecords(InputStream body, Class<T> type, Consumer<T> check,
+                                              Consumer<List<T>> batchWriter) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        List<T> batch = new ArrayList<>(batchSize);
+        try (MappingIterator<T> records = objectMapper.readerFor(type).readValues(body)) {
+            long index = 0;
+            while (true) {
+                T record;
+                try {
+                    if (!records.hasNextValue()) {
+                        break;
+                    }
+                    record = records.nextValue();
+                } catch (JsonMappingException e) {
+                    result.addError(index++, e.getOriginalMessage());
+                    continue;
+                } catch (JsonParseException e) {
+                    result.addError(index++, e.getOriginalMessage());
+                    break;
+                }
+                String error = validate(record, check);
+                if (error != null) {
+                    result.addError(index, error);
+                } else {
+                    batch.add(record);
+                    if (batch.size() == batchSize) {
+                        flush(batch, batchWriter, result);
+                    }
+                }
+                index++;
+            }
+            result.setReceived(index);
+        }
+        flush(batch, batchWriter, result);
+        log.info("Bulk import of {}: received {}, imported {}, rejected {}", type.getSimpleName(),
+                result.getReceived(), result.getImported(), result.getErrors().size());
+        return result;
+    }
+
+    public <T> void exportRecords(OutputStream body, Consumer<Consumer<T>> source) throws IOException {
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(body)) {
+            source.accept(record -> {
+                try {
+                    writer.write(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private <T> String validate(T record, Consumer<T> check) {
+        Set<ConstraintViolation<T>> violations = validator.validate(record);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        try {
+            check.accept(record);
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private <T> void flush(List<T> batch, Consumer<List<T>> batchWriter, BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchWriter.accept(batch);
+        result.setImported(result.getImported() + batch.size());
+        batch.clear();
+    }
+}
@@ -2,17 +2,25 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.ObjectNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
-import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
-import java.time.*;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -20,29 +28,52 @@ import java.util.stream.Collectors;
 public class FilmService {
     public final FilmStorage filmStorage;
     public final UserStorage userStorage;
-    private final DateTimeFormatter dateTimeFormatter;
-    private final static Instant MIN_RELEASE_DATA = Instant.from(ZonedDateTime.of(LocalDateTime.of(1895, 12,
-            28, 0, 0), ZoneId.of("Europe/Moscow")));
-
+    private final BulkJsonProcessor bulkJsonProcessor;
+    private final AsyncLikeWriter likeWriter;
+    private final TrendingFilms trendingFilms;
+    public static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+    public static final int MAX_BATCH_SIZE = 1000;
 
     @Autowired
-    public FilmService(FilmStorage filmStorage, InMemoryUserStorage userStorage) {
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, BulkJsonProcessor bulkJsonProcessor,
+                       @Nullable AsyncLikeWriter likeWriter, TrendingFilms trendingFilms) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
-        dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        this.bulkJsonProcessor = bulkJsonProcessor;
+        this.likeWriter = likeWriter;
+        this.trendingFilms = trendingFilms;
     }
 
     public List<Film> getAllFilms() {
         return filmStorage.getAllFilms();
     }
 
-    public Film getFilmById(int filmId) {
-        if (filmStorage.checkIsFilmInStorage(filmId)) {
-            return filmStorage.getFilmById(filmId);
-        } else {
+    public List<Film> getFilms(long afterId, int limit) {
+        return filmStorage.getFilms(afterId, limit);
+    }
+
+    public List<Film> getFilmsByReleaseYear(int year, long afterId, int limit) {
+        return filmStorage.getFilmsByReleaseYear(year, afterId, limit);
+    }
+
+    public Film getFilmById(long filmId) {
+        return filmStorage.getFilmById(filmId).orElseThrow(() -> {
             log.info("Film id={} Not found", filmId);
-            throw new ObjectNotFoundException(String.format("Film id=%s Not found", filmId));
+            return new ObjectNotFoundException(String.format("Film id=%s Not found", filmId));
+        });
+    }
+
+    public List<Film> getFilmsByIds(List<Long> filmIds) {
+        List<Long> distinctFilmIds = filmIds.stream().distinct().collect(Collectors.toList());
+        checkBatchSize(distinctFilmIds.size());
+        List<Film> films = filmStorage.getFilmsByIds(distinctFilmIds);
+        if (films.size() < distinctFilmIds.size()) {
+            Set<Long> foundFilmIds = films.stream().map(Film::getId).collect(Collectors.toSet());
+            distinctFilmIds.removeAll(foundFilmIds);
+            log.info("Films id={} not found", distinctFilmIds);
+            throw new ObjectNotFoundException(String.format("Films id=%s not found", distinctFilmIds));
         }
+        return films;
     }
 
     public Film addFilm(Film newFilm) {
@@ -54,68 +85,187 @@ public class FilmService {
     }
 
     public Film updateFilm(Film updatedFilm) {
-        if (filmStorage.checkIsFilmInStorage(updatedFilm)) {
-            if (checkIsFilmDataCorrect(updatedFilm)) {
-                return filmStorage.updateFilm(updatedFilm);
-            } else {
-                return null;
-            }
-        } else {
-            log.info("Film id={} Not found", updatedFilm);
-            throw new ObjectNotFoundException(String.format("Failed to update movie data id=%s because " +
-                    "film not found", updatedFilm.getId()));
-        }
+        return updateFilm(updatedFilm, null);
     }
 
-    public void addLike(int filmId, int userId) {
-        if (!filmStorage.checkIsFilmInStorage(filmId)) {
-            log.info("Film id={} not found", filmId);
-            throw new ObjectNotFoundException(String.format("Film id=%s not found", userId));
-        }
-        if (!userStorage.checkIsUserInStorage(userId)) {
-            log.info("User id={} not found", userId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", userId));
+    public Film updateFilm(Film updatedFilm, Long expectedVersion) {
+        if (!checkIsFilmDataCorrect(updatedFilm)) {
+            return null;
         }
-        filmStorage.addLike(filmId, userId);
+        Optional<Film> film = expectedVersion == null
+                ? filmStorage.updateFilm(updatedFilm)
+                : filmStorage.updateFilm(updatedFilm, expectedVersion);
+        return film.orElseThrow(() -> {
+            log.info("Film id={} Not found", updatedFilm.getId());
+            return new ObjectNotFoundException(String.format("Failed to update movie data id=%s because " +
+                    "film not found", updatedFilm.getId()));
+        });
     }
 
-    public void deleteLike(int filmId, int userId) {
-        if (!filmStorage.checkIsFilmInStorage(filmId)) {
-            log.info("Film id={} not found", filmId);
-            throw new ObjectNotFoundException(String.format("Film id=%s not found", userId));
-        }
-        if (!userStorage.checkIsUserInStorage(userId)) {
-            log.info("User id={} not found", userId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", userId));
+    public void addLike(long filmId, long userId) {
+        checkIsFilmExists(filmId);
+        checkIsUserExists(userId);
+        if (likeWriter != null) {
+            likeWriter.addLike(filmId, userId);
+        } else if (filmStorage.addLike(filmId, userId)) {
+            trendingFilms.recordLike(filmId);
         }
-        if (!filmStorage.checkIsFilmHasLikeFromUser(filmId, userId)) {
+    }
+
+    public void deleteLike(long filmId, long userId) {
+        checkIsFilmExists(filmId);
+        checkIsUserExists(userId);
+        if (likeWriter != null) {
+            likeWriter.deleteLike(filmId, userId);
+        } else if (filmStorage.deleteLike(filmId, userId)) {
+            trendingFilms.recordUnlike(filmId);
+        } else {
             log.info("For the movie id={} like from the user id={} not found", filmId, userId);
             throw new ValidationException(String.format("For the movie id=%s  like from the user id=%s not found",
                     filmId, userId));
         }
-        filmStorage.deleteLike(filmId, userId);
+    }
+
+    public void addLikes(List<Like> likes) {
+        checkLikesExist(likes);
+        if (likeWriter != null) {
+            likeWriter.addLikes(likes);
+        } else if (!likes.isEmpty()) {
+            filmStorage.addLikes(likes).forEach(like -> trendingFilms.recordLike(like.getFilmId()));
+        }
+    }
+
+    /**
+     * Deletes the given likes, skipping those that were never made, so a repeated request does not fail.
+     */
+    public void deleteLikes(List<Like> likes) {
+        checkLikesExist(likes);
+        if (likeWriter != null) {
+            likeWriter.deleteLikes(likes);
+        } else if (!likes.isEmpty()) {
+            filmStorage.deleteLikes(likes).forEach(like -> trendingFilms.recordUnlike(like.getFilmId()));
+        }
     }
 
     public List<Film> getPopularFilms(int count) {
-        log.info("Sent a list of {} movies with the most likes", count);
-        return filmStorage.getAllFilms().stream()
-                .sorted((f1, f2) -> (f1.getSetOfLikes().size() - f2.getSetOfLikes().size()) * (-1))
-                .limit(count)
+        log.debug("Sent a list of {} movies with the most likes", count);
+        return filmStorage.getPopularFilms(count);
+    }
+
+    public List<Film> getPopularFilms(int count, Integer year, LocalDate from, LocalDate to) {
+        if (year != null) {
+            if (from != null || to != null) {
+                log.info("Both the release year and the release date range are specified");
+                throw new ValidationException("Specify either the release year or the release date range");
+            }
+            from = LocalDate.of(year, 1, 1);
+            to = LocalDate.of(year, 12, 31);
+        } else if (from == null && to == null) {
+            return getPopularFilms(count);
+        } else if (from != null && to != null && from.isAfter(to)) {
+            log.info("The release date range is incorrect");
+            throw new ValidationException(String.format("The release date range is incorrect: %s is after %s",
+                    from, to));
+        }
+        log.debug("Sent a list of {} movies released from {} to {} with the most likes", count, from, to);
+        return filmStorage.getPopularFilms(count, from, to);
+    }
+
+    public List<Film> getTrendingFilms(Duration window, int count) {
+        log.debug("Sent a list of {} movies with the most likes over the last {}", count, window);
+        return Arrays.stream(trendingFilms.getTopFilmIds(window, count))
+                .mapToObj(filmStorage::getFilmById)
+                .flatMap(Optional::stream)
                 .collect(Collectors.toList());
     }
 
+    public List<Film> searchFilms(String query, List<String> by, int count) {
+        boolean byName = false;
+        boolean byDescription = false;
+        for (String field : by) {
+            if ("name".equalsIgnoreCase(field)) {
+                byName = true;
+            } else if ("description".equalsIgnoreCase(field)) {
+                byDescription = true;
+            } else {
+                log.info("Unknown search field {}", field);
+                throw new ValidationException(String.format("Unknown search field %s. Search by name or description",
+                        field));
+            }
+        }
+        log.debug("Sent a list of {} movies matching \"{}\"", count, query);
+        return filmStorage.searchFilms(query, byName, byDescription, count);
+    }
+
+    public List<Film> getRecommendedFilms(long userId, int count) {
+        checkIsUserExists(userId);
+        return filmStorage.getRecommendedFilms(userId, count);
+    }
+
+    public BulkImportResult importFilms(InputStream body) throws IOException {
+        return bulkJsonProcessor.importRecords(body, Film.class, this::checkIsFilmDataCorrect, filmStorage::addFilms);
+    }
+
+    public BulkImportResult importLikes(InputStream body) throws IOException {
+        return bulkJsonProcessor.importRecords(body, Like.class, like -> {
+            checkIsFilmExists(like.getFilmId());
+            checkIsUserExists(like.getUserId());
+        }, filmStorage::addLikes);
+    }
+
+    public void exportFilms(OutputStream body) throws IOException {
+        bulkJsonProcessor.exportRecords(body, filmStorage::forEachFilm);
+    }
+
     public boolean checkIsFilmDataCorrect(Film newFilm) {
-        if (getInstance(newFilm.getReleaseDate()).isBefore(MIN_RELEASE_DATA)) {
+        if (newFilm.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
             log.info("The movie's release date is incorrect");
             throw new ValidationException(String.format("The movie's release date is incorrect. Date required" +
-                    " not earlier %s", MIN_RELEASE_DATA));
+                    " not earlier %s", MIN_RELEASE_DATE));
         } else {
             return true;
         }
     }
 
-    private Instant getInstance(String time) {
-        return Instant.from(ZonedDateTime.of(LocalDate.parse(time, dateTimeFormatter),
-                LocalTime.of(0, 0), ZoneId.of("Europe/Moscow")));
+    private void checkLikesExist(List<Like> likes) {
+        checkBatchSize(likes.size());
+        List<Long> missingFilmIds = filmStorage.getMissingFilmIds(likes.stream()
+                .map(Like::getFilmId)
+                .distinct()
+                .collect(Collectors.toList()));
+        if (!missingFilmIds.isEmpty()) {
+            log.info("Films id={} not found", missingFilmIds);
+            throw new ObjectNotFoundException(String.format("Films id=%s not found", missingFilmIds));
+        }
+        List<Long> missingUserIds = userStorage.getMissingUserIds(likes.stream()
+                .map(Like::getUserId)
+                .distinct()
+                .collect(Collectors.toList()));
+        if (!missingUserIds.isEmpty()) {
+            log.info("Users id={} not found", missingUserIds);
+            throw new ObjectNotFoundException(String.format("Users id=%s not found", missingUserIds));
+        }
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            log.info("The batch of {} items is too large", size);
+            throw new ValidationException(String.format("The batch of %s items is too large. At most %s " +
+                    "items are allowed", size, MAX_BATCH_SIZE));
+        }
+    }
+
+    private void checkIsFilmExists(long filmId) {
+        if (!filmStorage.checkIsFilmInStorage(filmId)) {
+            log.info("Film id={} not found", filmId);
+            throw new ObjectNotFoundException(String.format("Film id=%s not found", filmId));
+        }
+    }
+
+    private void checkIsUserExists(long userId) {
+        if (!userStorage.checkIsUserInStorage(userId)) {
+            log.info("User id={} not found", userId);
+            throw new ObjectNotFoundException(String.format("User id=%s not found", userId));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,226 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.util.IdCounter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counts recent likes of every film in rings of minute and hour buckets. Likes and unlikes only add to the
+ * bucket of the current minute and hour; a background refresh clears the buckets that are about to come round,
+ * drops the counters of films without recent likes and keeps the top of every configured window ready, so those
+ * windows are served without scanning the films. Other windows are computed on demand. An unlike is subtracted
+ * from the current buckets whenever the like was given, and a film never scores below zero. The refresh clears
+ * the next two minutes ahead, so it must run at least once a minute and longer intervals are rejected. Likes are
+ * added to the counters without locks. The refresh retires empty counters before dropping them, and a like that
+ * lands in retired counters is taken back and added again, so no like is lost with the dropped counters.
+ */
+@Slf4j
+@Component
+public class TrendingFilms {
+    static final int MINUTE_BUCKETS = 60;
+    static final int HOUR_BUCKETS = 7 * 24;
+    private static final int SPARE_BUCKETS = 2;
+    private static final Duration MAX_MINUTE_WINDOW = Duration.ofMinutes(MINUTE_BUCKETS);
+    private static final Duration MAX_WINDOW = Duration.ofHours(HOUR_BUCKETS);
+    private static final Duration MAX_REFRESH_INTERVAL = Duration.ofMinutes(SPARE_BUCKETS - 1);
+    private final Clock clock;
+    private final List<Duration> precomputedWindows;
+    private final int topSize;
+    private final Duration refreshInterval;
+    private final Map<Long, FilmCounters> counters = new ConcurrentHashMap<>();
+    private final Map<Duration, long[]> topFilmIds = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService refresher;
+
+    @Autowired
+    public TrendingFilms(@Value("${filmorate.trending.windows}") List<Duration> precomputedWindows,
+                         @Value("${filmorate.trending.top-size}") int topSize,
+                         @Value("${filmorate.trending.refresh-interval}") Duration refreshInterval) {
+        this(Clock.systemUTC(), precomputedWindows, topSize, refreshInterval);
+    }
+
+    TrendingFilms(Clock clock, List<Duration> precomputedWindows, int topSize, Duration refreshInterval) {
+        precomputedWindows.forEach(TrendingFilms::checkIsWindowSupported);
+        if (refreshInterval.isNegative() || refreshInterval.isZero()
+                || refreshInterval.compareTo(MAX_REFRESH_INTERVAL) > 0) {
+            throw new IllegalArgumentException(String.format("The trending refresh interval %s is not supported. Use " +
+                    "a positive interval up to %s", refreshInterval, MAX_REFRESH_INTERVAL));
+        }
+        this.clock = clock;
+        this.precomputedWindows = precomputedWindows;
+        this.topSize = topSize;
+        this.refreshInterval = refreshInterval;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trending-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() {
+        long intervalMillis = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException e) {
+                log.error("Failed to refresh the trending movies", e);
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    public void recordLike(long filmId) {
+        add(filmId, 1, true);
+    }
+
+    public void recordUnlike(long filmId) {
+        add(filmId, -1, false);
+    }
+
+    /**
+     * Returns the ids of up to {@code count} films with the most likes over the last {@code window}, ties broken
+     * by the smaller id. Windows up to an hour are counted by minutes, longer ones by hours including the
+     * current one.
+     */
+    public long[] getTopFilmIds(Duration window, int count) {
+        checkIsWindowSupported(window);
+        long[] precomputed = topFilmIds.get(window);
+        if (precomputed != null && count <= topSize) {
+            return Arrays.copyOf(precomputed, Math.min(count, precomputed.length));
+        }
+        return computeTop(window, count, currentMinute());
+    }
+
+    void refresh() {
+        long minute = currentMinute();
+        counters.forEach((filmId, filmCounters) -> {
+            filmCounters.clearAhead(minute);
+            if (filmCounters.isEmpty()) {
+                filmCounters.isRetired = true;
+                if (filmCounters.isEmpty()) {
+                    counters.remove(filmId, filmCounters);
+                } else {
+                    filmCounters.isRetired = false;
+                }
+            }
+        });
+        for (Duration window : precomputedWindows) {
+            topFilmIds.put(window, computeTop(window, topSize, minute));
+        }
+    }
+
+    private void add(long filmId, int delta, boolean isCreating) {
+        long minute = currentMinute();
+        while (true) {
+            FilmCounters filmCounters = counters.get(filmId);
+            if (filmCounters == null) {
+                if (!isCreating) {
+                    return;
+                }
+                filmCounters = counters.computeIfAbsent(filmId, id -> new FilmCounters());
+            }
+            filmCounters.add(minute, delta);
+            if (!filmCounters.isRetired) {
+                return;
+            }
+            filmCounters.add(minute, -delta);
+            Thread.onSpinWait();
+        }
+    }
+
+    private long[] computeTop(Duration window, int count, long minute) {
+        IdCounter scores = new IdCounter(counters.size());
+        counters.forEach((filmId, filmCounters) -> {
+            int score = filmCounters.sum(window, minute);
+            if (score > 0) {
+                scores.add(filmId, score);
+            }
+        });
+        return scores.top(count, filmId -> true);
+    }
+
+    private long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(clock.millis());
+    }
+
+    private static void checkIsWindowSupported(Duration window) {
+        boolean isSupported = !window.isNegative() && !window.isZero() && window.compareTo(MAX_WINDOW) <= 0
+                && (window.compareTo(MAX_MINUTE_WINDOW) <= 0
+                ? window.toSeconds() % 60 == 0
+                : window.toSeconds() % 3600 == 0);
+        if (!isSupported) {
+            throw new ValidationException(String.format("The trending window %s is not supported. Use whole " +
+                    "minutes up to %s or whole hours up to %s", window, MAX_MINUTE_WINDOW, MAX_WINDOW));
+        }
+    }
+
+    private static final class FilmCounters {
+        private final AtomicIntegerArray minutes = new AtomicIntegerArray(MINUTE_BUCKETS + SPARE_BUCKETS);
+        private final AtomicIntegerArray hours = new AtomicIntegerArray(HOUR_BUCKETS + SPARE_BUCKETS);
+        private volatile boolean isRetired;
+
+        private void add(long minute, int delta) {
+            minutes.addAndGet(minuteSlot(minute), delta);
+            hours.addAndGet(hourSlot(minute / 60), delta);
+        }
+
+        private int sum(Duration window, long minute) {
+            int sum = 0;
+            if (window.compareTo(MAX_MINUTE_WINDOW) <= 0) {
+                for (long bucket = minute - window.toMinutes() + 1; bucket <= minute; bucket++) {
+                    sum += minutes.get(minuteSlot(bucket));
+                }
+            } else {
+                long hour = minute / 60;
+                for (long bucket = hour - window.toHours() + 1; bucket <= hour; bucket++) {
+                    sum += hours.get(hourSlot(bucket));
+                }
+            }
+            return Math.max(0, sum);
+        }
+
+        private void clearAhead(long minute) {
+            for (int ahead = 1; ahead <= SPARE_BUCKETS; ahead++) {
+                minutes.set(minuteSlot(minute + ahead), 0);
+                hours.set(hourSlot(minute / 60 + ahead), 0);
+            }
+        }
+
+        private boolean isEmpty() {
+            for (int i = 0; i < hours.length(); i++) {
+                if (hours.get(i) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int minuteSlot(long minute) {
+            return (int) (minute % minutes.length());
+        }
+
+        private int hourSlot(long hour) {
+            return (int) (hour % hours.length());
+        }
+    }
+}
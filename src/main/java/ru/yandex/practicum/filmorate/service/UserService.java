@@ -5,38 +5,60 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.ObjectNotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
-import java.time.*;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class UserService {
     private final UserStorage userStorage;
-    private final DateTimeFormatter dateTimeFormatter;
+    private final BulkJsonProcessor bulkJsonProcessor;
+    public static final int MAX_BATCH_SIZE = 1000;
 
     @Autowired
-    public UserService(InMemoryUserStorage userStorage) {
+    public UserService(UserStorage userStorage, BulkJsonProcessor bulkJsonProcessor) {
         this.userStorage = userStorage;
-        dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        this.bulkJsonProcessor = bulkJsonProcessor;
     }
 
     public List<User> getAllUsers() {
         return userStorage.getAllUsers();
     }
 
-    public User getUserById(int userId) {
-        if (userStorage.checkIsUserInStorage(userId)) {
-            return userStorage.getUserById(userId);
-        } else {
+    public List<User> getUsers(long afterId, int limit) {
+        return userStorage.getUsers(afterId, limit);
+    }
+
+    public User getUserById(long userId) {
+        return userStorage.getUserById(userId).orElseThrow(() -> {
             log.info("User id={} not found", userId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", userId));
+            return new ObjectNotFoundException(String.format("User id=%s not found", userId));
+        });
+    }
+
+    public List<User> getUsersByIds(List<Long> userIds) {
+        List<Long> distinctUserIds = userIds.stream().distinct().collect(Collectors.toList());
+        checkBatchSize(distinctUserIds.size());
+        List<User> users = userStorage.getUsersByIds(distinctUserIds);
+        if (users.size() < distinctUserIds.size()) {
+            Set<Long> foundUserIds = users.stream().map(User::getId).collect(Collectors.toSet());
+            distinctUserIds.removeAll(foundUserIds);
+            log.info("Users id={} not found", distinctUserIds);
+            throw new ObjectNotFoundException(String.format("Users id=%s not found", distinctUserIds));
         }
+        return users;
     }
 
     public User addUser(User newUser) {
@@ -46,79 +68,98 @@ public class UserService {
     }
 
     public User updateUser(User updatedUser) {
-        if (userStorage.checkIsUserInStorage(updatedUser)) {
-            if (checkIsUserDataCorrect(updatedUser)) {
-                return userStorage.updateUser(updatedUser);
-            } else return null;
-        } else {
+        return updateUser(updatedUser, null);
+    }
+
+    public User updateUser(User updatedUser, Long expectedVersion) {
+        if (!checkIsUserDataCorrect(updatedUser)) {
+            return null;
+        }
+        Optional<User> user = expectedVersion == null
+                ? userStorage.updateUser(updatedUser)
+                : userStorage.updateUser(updatedUser, expectedVersion);
+        return user.orElseThrow(() -> {
             log.info("User id={} not found", updatedUser.getId());
-            throw new ObjectNotFoundException(String.format("Failed to update user data id=%s т.к. " +
+            return new ObjectNotFoundException(String.format("Failed to update user data id=%s т.к. " +
                     "user not found", updatedUser.getId()));
-        }
+        });
     }
 
-    public void addFriend(int userId, int friendId) {
-        if (!userStorage.checkIsUserInStorage(userId)) {
-            log.info("User id={} not found", userId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", userId));
-        }
-        if (!userStorage.checkIsUserInStorage(friendId)) {
-            log.info("User id={} not found", friendId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", friendId));
-        }
+    public void addFriend(long userId, long friendId) {
+        checkIsUserExists(userId);
+        checkIsUserExists(friendId);
         userStorage.addFriend(userId, friendId);
     }
 
-    public void deleteFriend(int userId, int friendId) {
-        if (!userStorage.checkIsUserInStorage(userId)) {
-            log.info("User id={} not found", userId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", userId));
-        }
-        if (!userStorage.checkIsUserInStorage(friendId)) {
-            log.info("User id={} not found", friendId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", friendId));
-        }
-        if (!userStorage.checkAreTheseUsersFriends(userId, friendId)) {
+    public void deleteFriend(long userId, long friendId) {
+        checkIsUserExists(userId);
+        checkIsUserExists(friendId);
+        if (!userStorage.deleteFriend(userId, friendId)) {
             log.info("User id={} not in the user's friends list id={}", friendId, userId);
             throw new ObjectNotFoundException(String.format("User id=%s not in the user's friends list id=%s",
                     friendId, userId));
         }
-        if (!userStorage.checkAreTheseUsersFriends(friendId, userId)) {
-            log.info("User id={} not in the user's friends list id={}", userId, friendId);
-            throw new ObjectNotFoundException(String.format("User id=%s not in the user's friends list id=%s",
-                    userId, friendId));
+    }
+
+    public void addFriendships(List<Friendship> friendships) {
+        checkFriendsExist(friendships);
+        if (!friendships.isEmpty()) {
+            userStorage.addFriendships(friendships);
         }
-        userStorage.deleteFriend(userId, friendId);
     }
 
-    public List<User> getListOfFriends(int userId) {
-        if (!userStorage.checkIsUserInStorage(userId)) {
-            log.info("User id={} not found", userId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", userId));
+    /**
+     * Deletes the given friendships, skipping those that do not exist, so a repeated request does not fail.
+     */
+    public void deleteFriendships(List<Friendship> friendships) {
+        checkFriendsExist(friendships);
+        if (!friendships.isEmpty()) {
+            userStorage.deleteFriendships(friendships);
         }
+    }
+
+    public List<User> getListOfFriends(long userId) {
+        checkIsUserExists(userId);
         return userStorage.getListOfFriends(userId);
     }
 
-    public List<User> getListOfCommonFriends(int userId, int friendId) {
-        if (!userStorage.checkIsUserInStorage(userId)) {
-            log.info("User id={} not found", userId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", userId));
-        }
-        if (!userStorage.checkIsUserInStorage(friendId)) {
-            log.info("User id={} not found", friendId);
-            throw new ObjectNotFoundException(String.format("User id=%s not found", friendId));
-        }
-        ArrayList<User> resultList = new ArrayList<>(userStorage.getListOfFriends(userId));
-        resultList.retainAll(userStorage.getListOfFriends(friendId));
-        log.info("A shared list of users' friends has been sent id={} и id={}", userId, friendId);
+    public List<User> getListOfCommonFriends(long userId, long friendId) {
+        return getListOfCommonFriends(userId, friendId, 0, Integer.MAX_VALUE);
+    }
+
+    public List<User> getListOfCommonFriends(long userId, long friendId, long afterId, int limit) {
+        checkIsUserExists(userId);
+        checkIsUserExists(friendId);
+        List<User> resultList = userStorage.getListOfCommonFriends(userId, friendId, afterId, limit);
+        log.debug("A shared list of users' friends has been sent id={} и id={}", userId, friendId);
         return resultList;
     }
 
+    public List<User> getRecommendedFriends(long userId, int count) {
+        checkIsUserExists(userId);
+        return userStorage.getRecommendedFriends(userId, count);
+    }
+
+    public BulkImportResult importUsers(InputStream body) throws IOException {
+        return bulkJsonProcessor.importRecords(body, User.class, this::checkIsUserDataCorrect, userStorage::addUsers);
+    }
+
+    public BulkImportResult importFriendships(InputStream body) throws IOException {
+        return bulkJsonProcessor.importRecords(body, Friendship.class, friendship -> {
+            checkIsUserExists(friendship.getUserId());
+            checkIsUserExists(friendship.getFriendId());
+        }, userStorage::addFriendships);
+    }
+
+    public void exportUsers(OutputStream body) throws IOException {
+        bulkJsonProcessor.exportRecords(body, userStorage::forEachUser);
+    }
+
     public boolean checkIsUserDataCorrect(User newUser) {
         if (newUser.getLogin().contains(" ")) {
             log.info("Invalid specified login");
             throw new ValidationException("Invalid specified login");
-        } else if (getInstance(newUser.getBirthday()).isAfter(Instant.now())) {
+        } else if (newUser.getBirthday().isAfter(LocalDate.now())) {
             log.info("Incorrect date of birth is specified");
             throw new ValidationException("Incorrect date of birth is specified");
         }
@@ -128,8 +169,30 @@ public class UserService {
         return true;
     }
 
-    private Instant getInstance(String time) {
-        return Instant.from(ZonedDateTime.of(LocalDate.parse(time, dateTimeFormatter),
-                LocalTime.of(0, 0), ZoneId.of("Europe/Moscow")));
+    private void checkFriendsExist(List<Friendship> friendships) {
+        checkBatchSize(friendships.size());
+        List<Long> missingUserIds = userStorage.getMissingUserIds(friendships.stream()
+                .flatMap(friendship -> Stream.of(friendship.getUserId(), friendship.getFriendId()))
+                .distinct()
+                .collect(Collectors.toList()));
+        if (!missingUserIds.isEmpty()) {
+            log.info("Users id={} not found", missingUserIds);
+            throw new ObjectNotFoundException(String.format("Users id=%s not found", missingUserIds));
+        }
+    }
+
+    private void checkBatchSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            log.info("The batch of {} items is too large", size);
+            throw new ValidationException(String.format("The batch of %s items is too large. At most %s " +
+                    "items are allowed", size, MAX_BATCH_SIZE));
+        }
+    }
+
+    private void checkIsUserExists(long userId) {
+        if (!userStorage.checkIsUserInStorage(userId)) {
+            log.info("User id={} not found", userId);
+            throw new ObjectNotFoundException(String.format("User id=%s not found", userId));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AtomicIdGenerator implements IdGenerator {
+    private final AtomicLong lastId = new AtomicLong();
+
+    @Override
+    public long nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    @Override
+    public void skipTo(long usedId) {
+        lastId.accumulateAndGet(usedId, Math::max);
+    }
+}
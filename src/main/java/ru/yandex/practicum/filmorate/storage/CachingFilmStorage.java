@@ -0,0 +1,306 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Caches films, popular lists and recommendations in front of the backend storage. Recommendations have their own
+ * switch, {@code filmorate.cache.recommendations.enabled}, so they can be cached while the film and popular caches
+ * stay off; those caches are then left empty and their reads go straight to the backend.
+ */
+@Primary
+@Component
+@ConditionalOnExpression("${filmorate.cache.enabled} or ${filmorate.cache.recommendations.enabled}")
+public class CachingFilmStorage implements FilmStorage, MeterBinder {
+    static final int RECOMMENDATIONS_DEPTH = 100;
+    private final FilmStorage filmStorage;
+    private final boolean isFilmCacheEnabled;
+    private final Cache<Long, Film> films;
+    private final Cache<List<Object>, List<Film>> popularFilms;
+    private final LoadingCache<Long, List<Long>> recommendedFilmIds;
+
+    @Autowired
+    public CachingFilmStorage(@Qualifier("backend") FilmStorage filmStorage,
+                              @Value("${filmorate.cache.enabled}") boolean isFilmCacheEnabled,
+                              @Value("${filmorate.cache.films.maximum-size}") long maximumSize,
+                              @Value("${filmorate.cache.popular.maximum-size}") long popularMaximumSize,
+                              @Value("${filmorate.cache.recommendations.maximum-size}")
+                              long recommendationsMaximumSize,
+                              @Value("${filmorate.cache.recommendations.refresh-after}")
+                              Duration recommendationsRefreshAfter) {
+        this.filmStorage = filmStorage;
+        this.isFilmCacheEnabled = isFilmCacheEnabled;
+        this.films = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.popularFilms = Caffeine.newBuilder()
+                .maximumSize(popularMaximumSize)
+                .recordStats()
+                .build();
+        this.recommendedFilmIds = Caffeine.newBuilder()
+                .maximumSize(recommendationsMaximumSize)
+                .refreshAfterWrite(recommendationsRefreshAfter)
+                .recordStats()
+                .build(this::loadRecommendedFilmIds);
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    @Override
+    public List<Film> getFilms(long afterId, int limit) {
+        return filmStorage.getFilms(afterId, limit);
+    }
+
+    @Override
+    public List<Film> getFilmsByReleaseYear(int year, long afterId, int limit) {
+        return filmStorage.getFilmsByReleaseYear(year, afterId, limit);
+    }
+
+    @Override
+    public Film addFilm(Film newFilm) {
+        Film film = filmStorage.addFilm(newFilm);
+        popularFilms.invalidateAll();
+        return film;
+    }
+
+    @Override
+    public Optional<Film> updateFilm(Film updatedFilm) {
+        Optional<Film> film = filmStorage.updateFilm(updatedFilm);
+        films.invalidate(updatedFilm.getId());
+        popularFilms.invalidateAll();
+        return film;
+    }
+
+    @Override
+    public Optional<Film> updateFilm(Film updatedFilm, long expectedVersion) {
+        Optional<Film> film = filmStorage.updateFilm(updatedFilm, expectedVersion);
+        films.invalidate(updatedFilm.getId());
+        popularFilms.invalidateAll();
+        return film;
+    }
+
+    @Override
+    public boolean checkIsFilmInStorage(long filmId) {
+        return isFilmCacheEnabled && films.getIfPresent(filmId) != null || filmStorage.checkIsFilmInStorage(filmId);
+    }
+
+    @Override
+    public boolean addLike(long filmId, long userId) {
+        boolean isAdded = filmStorage.addLike(filmId, userId);
+        if (isAdded) {
+            films.invalidate(filmId);
+            popularFilms.invalidateAll();
+            recommendedFilmIds.invalidate(userId);
+            invalidateRecommendationsOfLikers(filmId);
+        }
+        return isAdded;
+    }
+
+    @Override
+    public boolean deleteLike(long filmId, long userId) {
+        boolean isDeleted = filmStorage.deleteLike(filmId, userId);
+        if (isDeleted) {
+            films.invalidate(filmId);
+            popularFilms.invalidateAll();
+            recommendedFilmIds.invalidate(userId);
+            invalidateRecommendationsOfLikers(filmId);
+        }
+        return isDeleted;
+    }
+
+    @Override
+    public Optional<Film> getFilmById(long filmId) {
+        if (!isFilmCacheEnabled) {
+            return filmStorage.getFilmById(filmId);
+        }
+        return Optional.ofNullable(films.get(filmId, id -> filmStorage.getFilmById(id).orElse(null)));
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Long> filmIds) {
+        if (!isFilmCacheEnabled) {
+            return filmStorage.getFilmsByIds(filmIds);
+        }
+        Map<Long, Film> filmsById = films.getAll(filmIds, this::loadFilms);
+        return filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, Film> loadFilms(Iterable<? extends Long> filmIds) {
+        List<Long> missingFilmIds = new ArrayList<>();
+        filmIds.forEach(missingFilmIds::add);
+        return filmStorage.getFilmsByIds(missingFilmIds).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+    }
+
+    @Override
+    public List<Long> getMissingFilmIds(List<Long> filmIds) {
+        if (!isFilmCacheEnabled) {
+            return filmStorage.getMissingFilmIds(filmIds);
+        }
+        return filmStorage.getMissingFilmIds(filmIds.stream()
+                .filter(filmId -> films.getIfPresent(filmId) == null)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        if (!isFilmCacheEnabled) {
+            return filmStorage.getPopularFilms(count);
+        }
+        return popularFilms.get(Arrays.asList(count, null, null), key -> filmStorage.getPopularFilms(count));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, LocalDate from, LocalDate to) {
+        if (!isFilmCacheEnabled) {
+            return filmStorage.getPopularFilms(count, from, to);
+        }
+        return popularFilms.get(Arrays.asList(count, from, to), key -> filmStorage.getPopularFilms(count, from, to));
+    }
+
+    /**
+     * Serves the first {@link #RECOMMENDATIONS_DEPTH} recommendations from cached film ids. A user's entry is
+     * dropped when the user's own likes change or when another user likes or unlikes a film the user liked, since
+     * that changes their overlap. Other changes, such as a similar user liking a film the user has not liked, are
+     * picked up by the background refresh and show up within the configured refresh-after period.
+     */
+    @Override
+    public List<Film> getRecommendedFilms(long userId, int count) {
+        if (count > RECOMMENDATIONS_DEPTH) {
+            return filmStorage.getRecommendedFilms(userId, count);
+        }
+        return recommendedFilmIds.get(userId).stream()
+                .limit(count)
+                .map(this::getFilmById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, boolean byName, boolean byDescription, int count) {
+        return filmStorage.searchFilms(query, byName, byDescription, count);
+    }
+
+    @Override
+    public void addFilms(List<Film> newFilms) {
+        filmStorage.addFilms(newFilms);
+        popularFilms.invalidateAll();
+    }
+
+    @Override
+    public List<Like> addLikes(List<Like> likes) {
+        List<Like> addedLikes = filmStorage.addLikes(likes);
+        addedLikes.forEach(like -> {
+            films.invalidate(like.getFilmId());
+            recommendedFilmIds.invalidate(like.getUserId());
+        });
+        if (!addedLikes.isEmpty()) {
+            popularFilms.invalidateAll();
+        }
+        addedLikes.stream().map(Like::getFilmId).distinct().forEach(this::invalidateRecommendationsOfLikers);
+        return addedLikes;
+    }
+
+    @Override
+    public List<Like> deleteLikes(List<Like> likes) {
+        List<Like> deletedLikes = filmStorage.deleteLikes(likes);
+        deletedLikes.forEach(like -> {
+            films.invalidate(like.getFilmId());
+            recommendedFilmIds.invalidate(like.getUserId());
+        });
+        if (!deletedLikes.isEmpty()) {
+            popularFilms.invalidateAll();
+        }
+        deletedLikes.stream().map(Like::getFilmId).distinct().forEach(this::invalidateRecommendationsOfLikers);
+        return deletedLikes;
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        filmStorage.forEachFilm(action);
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return filmStorage.getFilmsCount();
+    }
+
+    @Override
+    public long getLikesCount() {
+        return filmStorage.getLikesCount();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, films, "films");
+        CaffeineCacheMetrics.monitor(registry, popularFilms, "popularFilms");
+        CaffeineCacheMetrics.monitor(registry, recommendedFilmIds, "recommendedFilms");
+    }
+
+    public Cache<Long, Film> getFilmsCache() {
+        return films;
+    }
+
+    public LoadingCache<Long, List<Long>> getRecommendedFilmIdsCache() {
+        return recommendedFilmIds;
+    }
+
+    private void invalidateRecommendationsOfLikers(long filmId) {
+        long cachedUsers = recommendedFilmIds.estimatedSize();
+        if (cachedUsers == 0) {
+            return;
+        }
+        getFilmById(filmId).map(Film::getSetOfLikes).ifPresent(likes -> {
+            if (likes.size() > cachedUsers) {
+                recommendedFilmIds.asMap().keySet().removeIf(likes::contains);
+            } else {
+                recommendedFilmIds.invalidateAll(likes.stream().boxed().collect(Collectors.toList()));
+            }
+        });
+    }
+
+    private List<Long> loadRecommendedFilmIds(long userId) {
+        List<Film> recommendedFilms = filmStorage.getRecommendedFilms(userId, RECOMMENDATIONS_DEPTH);
+        if (isFilmCacheEnabled) {
+            recommendedFilms.forEach(film -> films.put(film.getId(), film));
+        }
+        return recommendedFilms.stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    public Cache<List<Object>, List<Film>> getPopularFilmsCache() {
+        return popularFilms;
+    }
+}
@@ -0,0 +1,193 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Primary
+@Component
+@ConditionalOnProperty(name = "filmorate.cache.enabled", havingValue = "true")
+public class CachingUserStorage implements UserStorage, MeterBinder {
+    private final UserStorage userStorage;
+    private final Cache<Long, User> users;
+
+    @Autowired
+    public CachingUserStorage(@Qualifier("backend") UserStorage userStorage,
+                              @Value("${filmorate.cache.users.maximum-size}") long maximumSize) {
+        this.userStorage = userStorage;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return userStorage.getAllUsers();
+    }
+
+    @Override
+    public List<User> getUsers(long afterId, int limit) {
+        return userStorage.getUsers(afterId, limit);
+    }
+
+    @Override
+    public Optional<User> getUserById(long userId) {
+        return Optional.ofNullable(users.get(userId, id -> userStorage.getUserById(id).orElse(null)));
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Long> userIds) {
+        Map<Long, User> usersById = users.getAll(userIds, this::loadUsers);
+        return userIds.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, User> loadUsers(Iterable<? extends Long> userIds) {
+        List<Long> missingUserIds = new ArrayList<>();
+        userIds.forEach(missingUserIds::add);
+        return userStorage.getUsersByIds(missingUserIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    @Override
+    public List<Long> getMissingUserIds(List<Long> userIds) {
+        return userStorage.getMissingUserIds(userIds.stream()
+                .filter(userId -> users.getIfPresent(userId) == null)
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public User addUser(User newUser) {
+        return userStorage.addUser(newUser);
+    }
+
+    @Override
+    public void addFriend(long userId, long friendId) {
+        userStorage.addFriend(userId, friendId);
+        users.invalidate(userId);
+        users.invalidate(friendId);
+    }
+
+    @Override
+    public Optional<User> updateUser(User updatedUser) {
+        Optional<User> user = userStorage.updateUser(updatedUser);
+        users.invalidate(updatedUser.getId());
+        return user;
+    }
+
+    @Override
+    public Optional<User> updateUser(User updatedUser, long expectedVersion) {
+        Optional<User> user = userStorage.updateUser(updatedUser, expectedVersion);
+        users.invalidate(updatedUser.getId());
+        return user;
+    }
+
+    @Override
+    public boolean checkIsUserInStorage(long userId) {
+        return users.getIfPresent(userId) != null || userStorage.checkIsUserInStorage(userId);
+    }
+
+    @Override
+    public boolean deleteFriend(long userId, long friendId) {
+        boolean isDeleted = userStorage.deleteFriend(userId, friendId);
+        if (isDeleted) {
+            users.invalidate(userId);
+            users.invalidate(friendId);
+        }
+        return isDeleted;
+    }
+
+    @Override
+    public List<User> getListOfFriends(long userId) {
+        return userStorage.getListOfFriends(userId);
+    }
+
+    @Override
+    public List<User> getListOfCommonFriends(long userId, long otherUserId, long afterId, int limit) {
+        return userStorage.getListOfCommonFriends(userId, otherUserId, afterId, limit);
+    }
+
+    @Override
+    public boolean checkAreTheseUsersFriends(long userId, long friendId) {
+        User user = users.getIfPresent(userId);
+        if (user != null) {
+            return user.getSetOfFriends().contains(friendId);
+        }
+        return userStorage.checkAreTheseUsersFriends(userId, friendId);
+    }
+
+    @Override
+    public List<User> getRecommendedFriends(long userId, int count) {
+        return userStorage.getRecommendedFriends(userId, count);
+    }
+
+    @Override
+    public void addUsers(List<User> newUsers) {
+        userStorage.addUsers(newUsers);
+    }
+
+    @Override
+    public void addFriendships(List<Friendship> friendships) {
+        userStorage.addFriendships(friendships);
+        friendships.forEach(friendship -> {
+            users.invalidate(friendship.getUserId());
+            users.invalidate(friendship.getFriendId());
+        });
+    }
+
+    @Override
+    public List<Friendship> deleteFriendships(List<Friendship> friendships) {
+        List<Friendship> deletedFriendships = userStorage.deleteFriendships(friendships);
+        deletedFriendships.forEach(friendship -> {
+            users.invalidate(friendship.getUserId());
+            users.invalidate(friendship.getFriendId());
+        });
+        return deletedFriendships;
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        userStorage.forEachUser(action);
+    }
+
+    @Override
+    public long getUsersCount() {
+        return userStorage.getUsersCount();
+    }
+
+    @Override
+    public long getFriendshipsCount() {
+        return userStorage.getFriendshipsCount();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, users, "users");
+    }
+
+    public Cache<Long, User> getUsersCache() {
+        return users;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Binary layout of films, users and id sets shared by the write-ahead log and the snapshots. Numbers are
+ * varints, signed ones zigzag-encoded; strings are prefixed with their length plus one, zero standing for null;
+ * id sets are written sorted as the count, the first id and the gaps between neighbours.
+ */
+final class EntityCodec {
+    private EntityCodec() {
+    }
+
+    static void writeFilm(DataOutput out, Film film) throws IOException {
+        writeVarLong(out, film.getId());
+        writeString(out, film.getName());
+        writeString(out, film.getDescription());
+        writeSignedVarLong(out, film.getReleaseDate().toEpochDay());
+        writeSignedVarLong(out, film.getDuration());
+        writeSignedVarLong(out, film.getRate());
+    }
+
+    static Film readFilm(ByteBuffer in) {
+        Film film = new Film();
+        film.setId(readVarLong(in));
+        film.setName(readString(in));
+        film.setDescription(readString(in));
+        film.setReleaseDate(LocalDate.ofEpochDay(readSignedVarLong(in)));
+        film.setDuration(readSignedVarLong(in));
+        film.setRate((int) readSignedVarLong(in));
+        return film;
+    }
+
+    static void writeUser(DataOutput out, User user) throws IOException {
+        writeVarLong(out, user.getId());
+        writeString(out, user.getEmail());
+        writeString(out, user.getLogin());
+        writeString(out, user.getName());
+        writeSignedVarLong(out, user.getBirthday().toEpochDay());
+    }
+
+    static User readUser(ByteBuffer in) {
+        User user = new User();
+        user.setId(readVarLong(in));
+        user.setEmail(readString(in));
+        user.setLogin(readString(in));
+        user.setName(readString(in));
+        user.setBirthday(LocalDate.ofEpochDay(readSignedVarLong(in)));
+        return user;
+    }
+
+    static void writeIds(DataOutput out, IdSet ids) throws IOException {
+        long[] sortedIds = ids.toSortedArray();
+        writeVarLong(out, sortedIds.length);
+        long previousId = 0;
+        for (long id : sortedIds) {
+            writeVarLong(out, id - previousId);
+            previousId = id;
+        }
+    }
+
+    static IdSet readIds(ByteBuffer in) {
+        int count = (int) readVarLong(in);
+        IdSet ids = new IdSet(count);
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            id += readVarLong(in);
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte next = in.get();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readSignedVarLong(ByteBuffer in) {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,442 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Timed("filmorate.storage")
+@Component
+@Qualifier("backend")
+@Profile("db")
+public class FilmDbStorage implements FilmStorage {
+    private static final String SELECT_FILMS = "SELECT film_id, name, description, release_date, duration, rate, " +
+            "version FROM films";
+    private static final String SELECT_POPULAR_FILMS = "SELECT f.film_id, f.name, f.description, " +
+            "f.release_date, f.duration, f.rate, f.version FROM films AS f " +
+            "LEFT JOIN (SELECT film_id, COUNT(*) AS likes_count FROM likes GROUP BY film_id) AS l " +
+            "ON l.film_id = f.film_id";
+    private static final String INSERT_LIKE = "MERGE INTO likes AS l " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS n (film_id, user_id) " +
+            "ON l.film_id = n.film_id AND l.user_id = n.user_id " +
+            "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (n.film_id, n.user_id)";
+    private static final String ORDER_BY_POPULARITY = " ORDER BY COALESCE(l.likes_count, 0) DESC, f.film_id LIMIT ?";
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final SimpleJdbcInsert filmInsert;
+
+    @Autowired
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration", "rate")
+                .usingGeneratedKeyColumns("film_id");
+    }
+
+    @Override
+    public List<Film> getAllFilms() {
+        log.debug("A list of all the movies will appear");
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " ORDER BY film_id", this::mapRowToFilm);
+        Map<Long, Film> filmsById = films.stream().collect(Collectors.toMap(Film::getId, Function.identity()));
+        jdbcTemplate.query("SELECT film_id, user_id FROM likes", rs -> {
+            filmsById.get(rs.getLong("film_id")).addLike(rs.getLong("user_id"));
+        });
+        return films;
+    }
+
+    @Override
+    public List<Film> getFilms(long afterId, int limit) {
+        log.debug("A page of {} movies after id={} will appear", limit, afterId);
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " WHERE film_id > ? ORDER BY film_id LIMIT ?",
+                this::mapRowToFilm, afterId, limit);
+        loadLikes(films.stream().collect(Collectors.toMap(Film::getId, Function.identity())));
+        return films;
+    }
+
+    @Override
+    public List<Film> getFilmsByReleaseYear(int year, long afterId, int limit) {
+        log.debug("A page of {} movies released in {} after id={} will appear", limit, year, afterId);
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " WHERE release_date >= ? AND release_date < ? " +
+                        "AND film_id > ? ORDER BY film_id LIMIT ?", this::mapRowToFilm,
+                LocalDate.ofYearDay(year, 1), LocalDate.ofYearDay(year + 1, 1), afterId, limit);
+        loadLikes(films.stream().collect(Collectors.toMap(Film::getId, Function.identity())));
+        return films;
+    }
+
+    @Override
+    public Film addFilm(Film newFilm) {
+        long filmId = filmInsert.executeAndReturnKey(toParameters(newFilm)).longValue();
+        newFilm.setId(filmId);
+        newFilm.generateSetOfLikes();
+        log.debug("Added a new movie id={}", filmId);
+        return newFilm;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Film> updateFilm(Film updatedFilm) {
+        return saveFilm(updatedFilm, null);
+    }
+
+    @Override
+    @Transactional
+    public Optional<Film> updateFilm(Film updatedFilm, long expectedVersion) {
+        return saveFilm(updatedFilm, expectedVersion);
+    }
+
+    private Optional<Film> saveFilm(Film updatedFilm, Long expectedVersion) {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT version FROM films WHERE film_id = ? FOR UPDATE",
+                Long.class, updatedFilm.getId());
+        if (versions.isEmpty()) {
+            return Optional.empty();
+        }
+        long version = versions.get(0);
+        if (expectedVersion != null && version != expectedVersion) {
+            log.info("Movie id={} has version {} instead of {}", updatedFilm.getId(), version, expectedVersion);
+            throw new PreconditionFailedException(String.format("Movie id=%s has been changed since version %s",
+                    updatedFilm.getId(), expectedVersion));
+        }
+        namedParameterJdbcTemplate.update("UPDATE films SET name = :name, description = :description, " +
+                        "release_date = :release_date, duration = :duration, rate = :rate, version = :version " +
+                        "WHERE film_id = :film_id",
+                toParameters(updatedFilm)
+                        .addValue("version", version + 1)
+                        .addValue("film_id", updatedFilm.getId()));
+        updatedFilm.setVersion(version + 1);
+        updatedFilm.generateSetOfLikes();
+        loadLikes(Map.of(updatedFilm.getId(), updatedFilm));
+        log.debug("Movie data id = {} updated", updatedFilm.getId());
+        return Optional.of(updatedFilm);
+    }
+
+    @Override
+    public boolean checkIsFilmInStorage(long filmId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS(SELECT 1 FROM films WHERE film_id = ?)", Boolean.class, filmId));
+    }
+
+    @Override
+    @Transactional
+    public boolean addLike(long filmId, long userId) {
+        boolean isAdded = jdbcTemplate.update(INSERT_LIKE, filmId, userId) > 0;
+        if (isAdded) {
+            incrementVersions(List.of(filmId));
+            log.debug("Movie id = {} added user  like id={}", filmId, userId);
+        }
+        return isAdded;
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteLike(long filmId, long userId) {
+        boolean isDeleted = jdbcTemplate.update("DELETE FROM likes WHERE film_id = ? AND user_id = ?",
+                filmId, userId) > 0;
+        if (isDeleted) {
+            incrementVersions(List.of(filmId));
+            log.debug("For the movie id = {}, the user's like  has been removed id={}", filmId, userId);
+        }
+        return isDeleted;
+    }
+
+    @Override
+    public Optional<Film> getFilmById(long filmId) {
+        log.debug("A movie appears id={}", filmId);
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " WHERE film_id = ?", this::mapRowToFilm, filmId);
+        if (films.isEmpty()) {
+            return Optional.empty();
+        }
+        Film film = films.get(0);
+        loadLikes(Map.of(filmId, film));
+        return Optional.of(film);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Long> filmIds) {
+        log.debug("A list of {} movies by id will appear", filmIds.size());
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Film> filmsById = namedParameterJdbcTemplate.query(SELECT_FILMS + " WHERE film_id IN (:film_ids)",
+                        new MapSqlParameterSource("film_ids", filmIds), this::mapRowToFilm).stream()
+                .collect(Collectors.toMap(Film::getId, Function.identity()));
+        loadLikes(filmsById);
+        return filmIds.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Long> getMissingFilmIds(List<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> storedFilmIds = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT film_id FROM films WHERE film_id IN (:film_ids)",
+                new MapSqlParameterSource("film_ids", filmIds), Long.class));
+        return filmIds.stream()
+                .filter(filmId -> !storedFilmIds.contains(filmId))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        log.debug("A list of {} movies with the most likes will appear", count);
+        List<Film> films = jdbcTemplate.query(SELECT_POPULAR_FILMS + ORDER_BY_POPULARITY, this::mapRowToFilm,
+                count);
+        loadLikes(films.stream().collect(Collectors.toMap(Film::getId, Function.identity())));
+        return films;
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, LocalDate from, LocalDate to) {
+        log.debug("A list of {} movies released from {} to {} with the most likes will appear", count, from, to);
+        List<String> conditions = new ArrayList<>();
+        List<Object> arguments = new ArrayList<>();
+        if (from != null) {
+            conditions.add("f.release_date >= ?");
+            arguments.add(from);
+        }
+        if (to != null) {
+            conditions.add("f.release_date <= ?");
+            arguments.add(to);
+        }
+        arguments.add(count);
+        String where = conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+        List<Film> films = jdbcTemplate.query(SELECT_POPULAR_FILMS + where + ORDER_BY_POPULARITY,
+                this::mapRowToFilm, arguments.toArray());
+        loadLikes(films.stream().collect(Collectors.toMap(Film::getId, Function.identity())));
+        return films;
+    }
+
+    /**
+     * Mirrors {@link FilmRecommendations}: every like list is read at most {@link FilmRecommendations#MAX_FAN_OUT}
+     * entries deep, taking the lowest ids. The last id to read is found once per list by an index seek, so the
+     * joins below scan bounded index ranges however popular a film or active a user is.
+     */
+    @Override
+    public List<Film> getRecommendedFilms(long userId, int count) {
+        log.debug("A list of {} recommended movies will appear for the user id={}", count, userId);
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + " JOIN (SELECT l3.film_id AS recommended_id, " +
+                "SUM(s.overlap) AS score FROM (SELECT s0.user_id, s0.overlap, COALESCE((SELECT c.film_id " +
+                "FROM likes AS c WHERE c.user_id = s0.user_id ORDER BY c.film_id " +
+                "OFFSET ? ROWS FETCH NEXT 1 ROW ONLY), ?) AS last_film_id " +
+                "FROM (SELECT l2.user_id, COUNT(*) AS overlap FROM (SELECT l.film_id, COALESCE((SELECT c.user_id " +
+                "FROM likes AS c WHERE c.film_id = l.film_id ORDER BY c.user_id " +
+                "OFFSET ? ROWS FETCH NEXT 1 ROW ONLY), ?) AS last_user_id " +
+                "FROM likes AS l WHERE l.user_id = ? ORDER BY l.film_id LIMIT ?) AS l1 " +
+                "JOIN likes AS l2 ON l2.film_id = l1.film_id AND l2.user_id <= l1.last_user_id " +
+                "WHERE l2.user_id <> ? GROUP BY l2.user_id ORDER BY overlap DESC, l2.user_id LIMIT ?) AS s0) AS s " +
+                "JOIN likes AS l3 ON l3.user_id = s.user_id AND l3.film_id <= s.last_film_id " +
+                "WHERE NOT EXISTS (SELECT 1 FROM likes AS l4 WHERE l4.user_id = ? AND l4.film_id = l3.film_id) " +
+                "GROUP BY l3.film_id ORDER BY score DESC, l3.film_id LIMIT ?) AS r " +
+                "ON r.recommended_id = film_id ORDER BY r.score DESC, film_id", this::mapRowToFilm,
+                FilmRecommendations.MAX_FAN_OUT - 1, Long.MAX_VALUE, FilmRecommendations.MAX_FAN_OUT - 1,
+                Long.MAX_VALUE, userId, FilmRecommendations.MAX_FAN_OUT, userId, FilmRecommendations.SIMILAR_USERS,
+                userId, count);
+        loadLikes(films.stream().collect(Collectors.toMap(Film::getId, Function.identity())));
+        return films;
+    }
+
+    /**
+     * Matches query words against the starts of space-separated words, which is close to the in-memory index
+     * without a full-text engine. Query words are letters and digits only, so they never contain LIKE wildcards.
+     */
+    @Override
+    public List<Film> searchFilms(String query, boolean byName, boolean byDescription, int count) {
+        log.debug("A list of {} movies matching \"{}\" will appear", count, query);
+        List<String> words = FilmSearchIndex.tokenize(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<String> columns = new ArrayList<>();
+        if (byName) {
+            columns.add("LOWER(f.name)");
+        }
+        if (byDescription) {
+            columns.add("LOWER(COALESCE(f.description, ''))");
+        }
+        List<String> conditions = new ArrayList<>();
+        List<Object> arguments = new ArrayList<>();
+        for (String word : words) {
+            List<String> wordConditions = new ArrayList<>();
+            for (String column : columns) {
+                wordConditions.add(column + " LIKE ?");
+                wordConditions.add(column + " LIKE ?");
+                arguments.add(word + "%");
+                arguments.add("% " + word + "%");
+            }
+            conditions.add("(" + String.join(" OR ", wordConditions) + ")");
+        }
+        arguments.add(count);
+        List<Film> films = jdbcTemplate.query(SELECT_POPULAR_FILMS + " WHERE " + String.join(" AND ", conditions) +
+                ORDER_BY_POPULARITY, this::mapRowToFilm, arguments.toArray());
+        loadLikes(films.stream().collect(Collectors.toMap(Film::getId, Function.identity())));
+        return films;
+    }
+
+    @Override
+    public void addFilms(List<Film> newFilms) {
+        jdbcTemplate.execute((Connection connection) -> connection.prepareStatement("INSERT INTO films " +
+                "(name, description, release_date, duration, rate) VALUES (?, ?, ?, ?, ?)",
+                new String[]{"film_id"}), (PreparedStatement ps) -> {
+            for (Film film : newFilms) {
+                ps.setString(1, film.getName());
+                ps.setString(2, film.getDescription());
+                ps.setObject(3, film.getReleaseDate());
+                ps.setLong(4, film.getDuration());
+                ps.setInt(5, film.getRate());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (Film film : newFilms) {
+                    if (!keys.next()) {
+                        throw new IllegalStateException("No generated id for the movie " + film.getName());
+                    }
+                    film.setId(keys.getLong(1));
+                    film.generateSetOfLikes();
+                }
+            }
+            return null;
+        });
+        log.debug("Added {} new movies", newFilms.size());
+    }
+
+    @Override
+    @Transactional
+    public List<Like> addLikes(List<Like> likes) {
+        int[][] addedRows = jdbcTemplate.batchUpdate(INSERT_LIKE, likes, likes.size(), (ps, like) -> {
+            ps.setLong(1, like.getFilmId());
+            ps.setLong(2, like.getUserId());
+        });
+        List<Like> addedLikes = new ArrayList<>();
+        for (int i = 0; i < likes.size(); i++) {
+            if (addedRows[0][i] > 0) {
+                addedLikes.add(likes.get(i));
+            }
+        }
+        incrementVersions(addedLikes.stream().map(Like::getFilmId).collect(Collectors.toSet()));
+        log.debug("Added {} likes", addedLikes.size());
+        return addedLikes;
+    }
+
+    @Override
+    @Transactional
+    public List<Like> deleteLikes(List<Like> likes) {
+        int[][] deletedRows = jdbcTemplate.batchUpdate("DELETE FROM likes WHERE film_id = ? AND user_id = ?",
+                likes, likes.size(), (ps, like) -> {
+                    ps.setLong(1, like.getFilmId());
+                    ps.setLong(2, like.getUserId());
+                });
+        List<Like> deletedLikes = new ArrayList<>();
+        for (int i = 0; i < likes.size(); i++) {
+            if (deletedRows[0][i] > 0) {
+                deletedLikes.add(likes.get(i));
+            }
+        }
+        incrementVersions(deletedLikes.stream().map(Like::getFilmId).collect(Collectors.toSet()));
+        log.debug("Deleted {} likes", deletedLikes.size());
+        return deletedLikes;
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        AtomicReference<Film> currentFilm = new AtomicReference<>();
+        jdbcTemplate.query("SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.rate, f.version, " +
+                "l.user_id FROM films AS f LEFT JOIN likes AS l ON l.film_id = f.film_id " +
+                "ORDER BY f.film_id", rs -> {
+                    Film film = currentFilm.get();
+                    if (film == null || film.getId() != rs.getLong("film_id")) {
+                        if (film != null) {
+                            action.accept(film);
+                        }
+                        film = mapRowToFilm(rs, rs.getRow());
+                        currentFilm.set(film);
+                    }
+                    long userId = rs.getLong("user_id");
+                    if (!rs.wasNull()) {
+                        film.addLike(userId);
+                    }
+                });
+        if (currentFilm.get() != null) {
+            action.accept(currentFilm.get());
+        }
+    }
+
+    @Override
+    public long getFilmsCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Long.class);
+    }
+
+    @Override
+    public long getLikesCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Long.class);
+    }
+
+    private void loadLikes(Map<Long, Film> filmsById) {
+        if (filmsById.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.query("SELECT film_id, user_id FROM likes WHERE film_id IN (:film_ids)",
+                new MapSqlParameterSource("film_ids", filmsById.keySet()),
+                rs -> {
+                    filmsById.get(rs.getLong("film_id")).addLike(rs.getLong("user_id"));
+                });
+    }
+
+    private void incrementVersions(Collection<Long> filmIds) {
+        if (filmIds.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.update("UPDATE films SET version = version + 1 WHERE film_id IN (:film_ids)",
+                new MapSqlParameterSource("film_ids", filmIds));
+    }
+
+    private MapSqlParameterSource toParameters(Film film) {
+        return new MapSqlParameterSource()
+                .addValue("name", film.getName())
+                .addValue("description", film.getDescription())
+                .addValue("release_date", film.getReleaseDate())
+                .addValue("duration", film.getDuration())
+                .addValue("rate", film.getRate());
+    }
+
+    private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getLong("film_id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getObject("release_date", LocalDate.class));
+        film.setDuration(rs.getLong("duration"));
+        film.setRate(rs.getInt("rate"));
+        film.setVersion(rs.getLong("version"));
+        film.setSetOfLikes(new IdSet());
+        return film;
+    }
+}
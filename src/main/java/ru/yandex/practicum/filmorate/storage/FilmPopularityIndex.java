@@ -0,0 +1,126 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.LongPredicate;
+
+class FilmPopularityIndex {
+    private final NavigableSet<Entry> ranking = new ConcurrentSkipListSet<>();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    public void addFilm(long filmId) {
+        Entry entry = new Entry(filmId, 0);
+        entries.put(filmId, entry);
+        ranking.add(entry);
+    }
+
+    /**
+     * Must be called under the film's lock: the new entry is published before the old one is removed,
+     * so concurrent readers may briefly see the film twice but never miss it.
+     */
+    public void updateLikes(long filmId, int likes) {
+        Entry newEntry = new Entry(filmId, likes);
+        Entry oldEntry = entries.put(filmId, newEntry);
+        ranking.add(newEntry);
+        if (oldEntry != null) {
+            ranking.remove(oldEntry);
+        }
+    }
+
+    /**
+     * Must be called under the film's lock.
+     */
+    public void removeFilm(long filmId) {
+        Entry entry = entries.remove(filmId);
+        if (entry != null) {
+            ranking.remove(entry);
+        }
+    }
+
+    public List<Long> getTopFilmIds(int count) {
+        Set<Long> topFilmIds = new LinkedHashSet<>();
+        Iterator<Entry> iterator = ranking.iterator();
+        while (topFilmIds.size() < count && iterator.hasNext()) {
+            topFilmIds.add(iterator.next().getFilmId());
+        }
+        return new ArrayList<>(topFilmIds);
+    }
+
+    /**
+     * Merges the rankings of several indexes, e.g. one per release year, reading each of them only as far as
+     * needed to fill the top. Films rejected by the filter are skipped without ending the merge.
+     */
+    public static List<Long> getTopFilmIds(Collection<FilmPopularityIndex> indexes, int count, LongPredicate filter) {
+        return getTopFilmIds(indexes, count, filter, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #getTopFilmIds(Collection, int, LongPredicate)}, but gives up after checking {@code maxScanned}
+     * films, so a rare filter returns the matches among the most popular films instead of reading every index
+     * to the end.
+     */
+    public static List<Long> getTopFilmIds(Collection<FilmPopularityIndex> indexes, int count, LongPredicate filter,
+                                           int maxScanned) {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(indexes.size() + 1,
+                Comparator.comparing(Cursor::getEntry));
+        for (FilmPopularityIndex index : indexes) {
+            Iterator<Entry> iterator = index.ranking.iterator();
+            if (iterator.hasNext()) {
+                cursors.add(new Cursor(iterator.next(), iterator));
+            }
+        }
+        Set<Long> topFilmIds = new LinkedHashSet<>();
+        for (int scanned = 0; scanned < maxScanned && topFilmIds.size() < count && !cursors.isEmpty(); scanned++) {
+            Cursor cursor = cursors.poll();
+            long filmId = cursor.getEntry().getFilmId();
+            if (filter.test(filmId)) {
+                topFilmIds.add(filmId);
+            }
+            if (cursor.iterator.hasNext()) {
+                cursor.entry = cursor.iterator.next();
+                cursors.add(cursor);
+            }
+        }
+        return new ArrayList<>(topFilmIds);
+    }
+
+    private static final class Cursor {
+        private final Iterator<Entry> iterator;
+        private Entry entry;
+
+        private Cursor(Entry entry, Iterator<Entry> iterator) {
+            this.entry = entry;
+            this.iterator = iterator;
+        }
+
+        private Entry getEntry() {
+            return entry;
+        }
+    }
+
+    /**
+     * Ordered by likes descending, then by film id.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final long filmId;
+        private final int likes;
+
+        private Entry(long filmId, int likes) {
+            this.filmId = filmId;
+            this.likes = likes;
+        }
+
+        private long getFilmId() {
+            return filmId;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (likes != other.likes) {
+                return Integer.compare(other.likes, likes);
+            }
+            return Long.compare(filmId, other.filmId);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.util.IdCounter;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * User-based collaborative filtering over the like matrix. Users are similar when they liked the same films;
+ * films liked by the {@link #SIMILAR_USERS} most similar users are scored by the sum of those users' overlaps.
+ * Every like list is read at most {@link #MAX_FAN_OUT} entries deep, so blockbusters and heavy likers stay cheap.
+ */
+class FilmRecommendations {
+    static final int MAX_FAN_OUT = 1000;
+    static final int SIMILAR_USERS = 50;
+    private final LongFunction<IdSet> likesOfFilm;
+    private final LongFunction<IdSet> likedFilmsOfUser;
+
+    FilmRecommendations(LongFunction<IdSet> likesOfFilm, LongFunction<IdSet> likedFilmsOfUser) {
+        this.likesOfFilm = likesOfFilm;
+        this.likedFilmsOfUser = likedFilmsOfUser;
+    }
+
+    List<Long> recommend(long userId, int count) {
+        IdSet likedFilms = likedFilmsOfUser.apply(userId);
+        IdCounter overlaps = new IdCounter();
+        for (long filmId : likedFilms.toArray(MAX_FAN_OUT)) {
+            for (long otherUserId : likesOfFilm.apply(filmId).toArray(MAX_FAN_OUT)) {
+                overlaps.increment(otherUserId);
+            }
+        }
+        IdCounter scores = new IdCounter();
+        for (long similarUserId : overlaps.top(SIMILAR_USERS, otherUserId -> otherUserId != userId)) {
+            int overlap = overlaps.get(similarUserId);
+            for (long filmId : likedFilmsOfUser.apply(similarUserId).toArray(MAX_FAN_OUT)) {
+                scores.add(filmId, overlap);
+            }
+        }
+        return Arrays.stream(scores.top(count, filmId -> !likedFilms.contains(filmId)))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+}
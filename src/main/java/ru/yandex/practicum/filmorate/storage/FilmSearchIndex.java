@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Inverted index over film names and descriptions. Terms are lower-cased runs of letters and digits kept in
+ * sorted maps, so a query word matches every term it is a prefix of, and posting lists are {@link IdSet}s.
+ * A posting list is removed from its map once it is empty, so the terms of renamed films do not pile up. The
+ * removal happens under the list's own monitor, and an add checks under that monitor that the list is still in
+ * the map, so a concurrent add never lands in a detached set.
+ */
+class FilmSearchIndex {
+    static final int MAX_CANDIDATES = 10_000;
+    static final int MAX_SCANNED = MAX_CANDIDATES;
+    private final NavigableMap<String, IdSet> nameTerms = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, IdSet> descriptionTerms = new ConcurrentSkipListMap<>();
+
+    void addFilm(Film film) {
+        tokenize(film.getName()).forEach(term -> addPosting(nameTerms, term, film.getId()));
+        tokenize(film.getDescription()).forEach(term -> addPosting(descriptionTerms, term, film.getId()));
+    }
+
+    /**
+     * Must be called under the film's lock.
+     */
+    void updateFilm(Film oldFilm, Film newFilm) {
+        tokenize(oldFilm.getName()).forEach(term -> removePosting(nameTerms, term, oldFilm.getId()));
+        tokenize(oldFilm.getDescription()).forEach(term -> removePosting(descriptionTerms, term, oldFilm.getId()));
+        addFilm(newFilm);
+    }
+
+    /**
+     * Returns the films containing the most selective query word, which the caller still has to check against
+     * the other words, or {@code null} when every word matches more than {@link #MAX_CANDIDATES} postings. The
+     * caller then checks at most {@link #MAX_SCANNED} films in popularity order, so such a broad query only finds
+     * matches among the most popular films. Either way the number of films checked is capped, but every check
+     * tokenizes the film's name and description again.
+     */
+    long[] findCandidates(List<String> words, boolean byName, boolean byDescription) {
+        IdSet candidates = null;
+        for (String word : words) {
+            IdSet wordCandidates = new IdSet();
+            boolean isSelective = (!byName || collectPostings(nameTerms, word, wordCandidates))
+                    && (!byDescription || collectPostings(descriptionTerms, word, wordCandidates));
+            if (isSelective && (candidates == null || wordCandidates.size() < candidates.size())) {
+                candidates = wordCandidates;
+            }
+        }
+        return candidates == null ? null : candidates.toArray();
+    }
+
+    int getTermsCount() {
+        return nameTerms.size() + descriptionTerms.size();
+    }
+
+    static boolean matches(Film film, List<String> words, boolean byName, boolean byDescription) {
+        List<String> terms = new ArrayList<>();
+        if (byName) {
+            terms.addAll(tokenize(film.getName()));
+        }
+        if (byDescription) {
+            terms.addAll(tokenize(film.getDescription()));
+        }
+        return words.stream().allMatch(word -> terms.stream().anyMatch(term -> term.startsWith(word)));
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        String lowerCaseText = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerCaseText.length(); i++) {
+            boolean isWordChar = i < lowerCaseText.length() && Character.isLetterOrDigit(lowerCaseText.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                terms.add(lowerCaseText.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static void addPosting(NavigableMap<String, IdSet> terms, String term, long filmId) {
+        while (true) {
+            IdSet postings = terms.computeIfAbsent(term, key -> new IdSet());
+            synchronized (postings) {
+                if (terms.get(term) == postings) {
+                    postings.add(filmId);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void removePosting(NavigableMap<String, IdSet> terms, String term, long filmId) {
+        IdSet postings = terms.get(term);
+        if (postings == null) {
+            return;
+        }
+        synchronized (postings) {
+            postings.remove(filmId);
+            if (postings.isEmpty()) {
+                terms.remove(term, postings);
+            }
+        }
+    }
+
+    private static boolean collectPostings(NavigableMap<String, IdSet> terms, String prefix, IdSet postings) {
+        for (IdSet termPostings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            for (long filmId : termPostings.toArray(MAX_CANDIDATES + 1)) {
+                postings.add(filmId);
+            }
+            if (postings.size() > MAX_CANDIDATES) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,25 +1,55 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     List<Film> getAllFilms();
 
+    List<Film> getFilms(long afterId, int limit);
+
+    List<Film> getFilmsByReleaseYear(int year, long afterId, int limit);
+
     Film addFilm(Film newFilm);
 
-    Film updateFilm(Film updatedFilm);
+    Optional<Film> updateFilm(Film updatedFilm);
+
+    Optional<Film> updateFilm(Film updatedFilm, long expectedVersion);
+
+    boolean checkIsFilmInStorage(long filmId);
+
+    boolean addLike(long filmId, long userId);
+
+    boolean deleteLike(long filmId, long userId);
+
+    Optional<Film> getFilmById(long filmId);
+
+    List<Film> getFilmsByIds(List<Long> filmIds);
+
+    List<Long> getMissingFilmIds(List<Long> filmIds);
+
+    List<Film> getPopularFilms(int count);
+
+    List<Film> getPopularFilms(int count, LocalDate from, LocalDate to);
+
+    List<Film> getRecommendedFilms(long userId, int count);
+
+    List<Film> searchFilms(String query, boolean byName, boolean byDescription, int count);
 
-    boolean checkIsFilmInStorage(Film film);
+    void addFilms(List<Film> newFilms);
 
-    boolean checkIsFilmInStorage(int filmId);
+    List<Like> addLikes(List<Like> likes);
 
-    boolean checkIsFilmHasLikeFromUser(int filmId, int userId);
+    List<Like> deleteLikes(List<Like> likes);
 
-    void addLike(int filmId, int userId);
+    void forEachFilm(Consumer<Film> action);
 
-    void deleteLike(int filmId, int userid);
+    long getFilmsCount();
 
-    Film getFilmById(int filmId);
+    long getLikesCount();
 }
\ No newline at end of file
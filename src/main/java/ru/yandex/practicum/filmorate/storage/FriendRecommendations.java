@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.util.IdCounter;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+/**
+ * Ranks friends of friends by the number of mutual friends. Only the first {@link #MAX_FAN_OUT} friends of
+ * every visited user are expanded, so a celebrity with millions of friends costs as much as an ordinary user,
+ * and neighbourhoods larger than {@link #PARALLEL_THRESHOLD} are counted in parallel on the common pool.
+ */
+class FriendRecommendations {
+    static final int MAX_FAN_OUT = 1000;
+    static final int PARALLEL_THRESHOLD = 64;
+    private final LongFunction<IdSet> friendsOf;
+
+    FriendRecommendations(LongFunction<IdSet> friendsOf) {
+        this.friendsOf = friendsOf;
+    }
+
+    long[] recommend(long userId, int count) {
+        IdSet friends = friendsOf.apply(userId);
+        long[] friendIds = friends.toArray(MAX_FAN_OUT);
+        IdCounter mutualFriends = friendIds.length > PARALLEL_THRESHOLD
+                ? ForkJoinPool.commonPool().invoke(new CountTask(friendIds, 0, friendIds.length))
+                : count(friendIds, 0, friendIds.length);
+        return mutualFriends.top(count, candidateId -> candidateId != userId && !friends.contains(candidateId));
+    }
+
+    private IdCounter count(long[] friendIds, int from, int to) {
+        IdCounter mutualFriends = new IdCounter();
+        for (int i = from; i < to; i++) {
+            for (long candidateId : friendsOf.apply(friendIds[i]).toArray(MAX_FAN_OUT)) {
+                mutualFriends.increment(candidateId);
+            }
+        }
+        return mutualFriends;
+    }
+
+    private class CountTask extends RecursiveTask<IdCounter> {
+        private final long[] friendIds;
+        private final int from;
+        private final int to;
+
+        private CountTask(long[] friendIds, int from, int to) {
+            this.friendIds = friendIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IdCounter compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return count(friendIds, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(friendIds, from, middle);
+            left.fork();
+            IdCounter right = new CountTask(friendIds, middle, to).compute();
+            IdCounter merged = left.join();
+            if (merged.size() < right.size()) {
+                right.addAll(merged);
+                return right;
+            }
+            merged.addAll(right);
+            return merged;
+        }
+    }
+}
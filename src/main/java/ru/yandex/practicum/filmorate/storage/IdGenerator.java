@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.storage;
+
+public interface IdGenerator {
+    long nextId();
+
+    void skipTo(long usedId);
+}
@@ -1,63 +1,391 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.util.IdCounter;
+import ru.yandex.practicum.filmorate.util.IdSet;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
 
 @Slf4j
+@Timed("filmorate.storage")
 @Component
+@Qualifier("backend")
+@Profile("!db")
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
+    private static final long ANY_VERSION = -1;
+    private final Map<Long, Film> films = new ConcurrentHashMap<>();
+    private final NavigableSet<Long> filmIds = new ConcurrentSkipListSet<>();
+    private final Map<Integer, NavigableSet<Long>> filmIdsByReleaseYear = new ConcurrentHashMap<>();
+    private final FilmPopularityIndex popularityIndex = new FilmPopularityIndex();
+    private final NavigableMap<Integer, FilmPopularityIndex> popularityIndexByReleaseYear =
+            new ConcurrentSkipListMap<>();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final LockStripes filmLocks = new LockStripes();
+    private final IdGenerator idGenerator = new AtomicIdGenerator();
+    private final LongAdder likesCount = new LongAdder();
+    private final Map<Long, IdSet> likedFilmIdsByUser = new ConcurrentHashMap<>();
+    private final FilmRecommendations filmRecommendations = new FilmRecommendations(
+            filmId -> films.get(filmId).getSetOfLikes(), this::getLikedFilmIds);
+    private volatile MutationLog mutationLog = MutationLog.NONE;
 
     public Film addFilm(Film newFilm) {
-        newFilm.generateAndSetId();
-        newFilm.generateSetOfLikes();
-        films.put(newFilm.getId(), newFilm);
-        log.info("Added a new movie id={}", newFilm.getId());
+        putNewFilm(newFilm);
+        mutationLog.sync();
+        log.debug("Added a new movie id={}", newFilm.getId());
         return newFilm;
     }
 
-    public Film updateFilm(Film updatedFilm) {
-        updatedFilm.setSetOfLikes(films.get(updatedFilm.getId()).getSetOfLikes());
-        films.put(updatedFilm.getId(), updatedFilm);
-        log.info("Movie data id = {} updated", updatedFilm.getId());
-        return updatedFilm;
+    public void addFilms(List<Film> newFilms) {
+        newFilms.forEach(this::putNewFilm);
+        mutationLog.sync();
+        log.debug("Added {} new movies", newFilms.size());
+    }
+
+    public Optional<Film> updateFilm(Film updatedFilm) {
+        return updateFilm(updatedFilm, ANY_VERSION);
+    }
+
+    /**
+     * Replaces the stored film if its version is still the expected one. Every change of a film, its likes
+     * included, bumps the version, so a client that read version n overwrites nothing it has not seen.
+     */
+    public Optional<Film> updateFilm(Film updatedFilm, long expectedVersion) {
+        Film storedFilm = filmLocks.callLocked(updatedFilm.getId(), () ->
+                films.computeIfPresent(updatedFilm.getId(), (id, oldFilm) -> {
+                    if (expectedVersion != ANY_VERSION && oldFilm.getVersion() != expectedVersion) {
+                        log.info("Movie id={} has version {} instead of {}", id, oldFilm.getVersion(),
+                                expectedVersion);
+                        throw new PreconditionFailedException(String.format("Movie id=%s has been changed " +
+                                "since version %s", id, expectedVersion));
+                    }
+                    updatedFilm.setSetOfLikes(oldFilm.getSetOfLikes());
+                    updatedFilm.setVersion(oldFilm.getVersion() + 1);
+                    int oldYear = oldFilm.getReleaseDate().getYear();
+                    int newYear = updatedFilm.getReleaseDate().getYear();
+                    if (oldYear != newYear) {
+                        getFilmIdsByReleaseYear(newYear).add(id);
+                        getFilmIdsByReleaseYear(oldYear).remove(id);
+                        getPopularityIndexByReleaseYear(newYear).updateLikes(id, oldFilm.getSetOfLikes().size());
+                        getPopularityIndexByReleaseYear(oldYear).removeFilm(id);
+                    }
+                    searchIndex.updateFilm(oldFilm, updatedFilm);
+                    mutationLog.filmSaved(updatedFilm);
+                    return updatedFilm;
+                }));
+        if (storedFilm != null) {
+            mutationLog.sync();
+            log.debug("Movie data id = {} updated", updatedFilm.getId());
+        }
+        return Optional.ofNullable(storedFilm);
     }
 
     public List<Film> getAllFilms() {
-        log.info("A list of all the movies will appear");
+        log.debug("A list of all the movies will appear");
         return new ArrayList<>(films.values());
     }
 
-    public Film getFilmById(int filmId) {
-        log.info("A movie appears id={}", filmId);
-        return films.get(filmId);
+    public List<Film> getFilms(long afterId, int limit) {
+        log.debug("A page of {} movies after id={} will appear", limit, afterId);
+        List<Film> page = new ArrayList<>();
+        Iterator<Long> ids = filmIds.tailSet(afterId, false).iterator();
+        while (page.size() < limit && ids.hasNext()) {
+            page.add(films.get(ids.next()));
+        }
+        return page;
+    }
+
+    public List<Film> getFilmsByReleaseYear(int year, long afterId, int limit) {
+        log.debug("A page of {} movies released in {} after id={} will appear", limit, year, afterId);
+        NavigableSet<Long> yearFilmIds = filmIdsByReleaseYear.get(year);
+        if (yearFilmIds == null) {
+            return new ArrayList<>();
+        }
+        return yearFilmIds.tailSet(afterId, false).stream()
+                .limit(limit)
+                .map(films::get)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<Film> getFilmById(long filmId) {
+        log.debug("A movie appears id={}", filmId);
+        return Optional.ofNullable(films.get(filmId));
+    }
+
+    public boolean addLike(long filmId, long userId) {
+        boolean isAdded = filmLocks.callLocked(filmId, () -> {
+            Film film = films.get(filmId);
+            if (!putLike(film, userId)) {
+                return false;
+            }
+            updatePopularity(film);
+            return true;
+        });
+        if (isAdded) {
+            mutationLog.sync();
+            log.debug("Movie id = {} added user  like id={}", filmId, userId);
+        }
+        return isAdded;
+    }
+
+    public List<Film> getFilmsByIds(List<Long> filmIds) {
+        log.debug("A list of {} movies by id will appear", filmIds.size());
+        return filmIds.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    public List<Long> getMissingFilmIds(List<Long> filmIds) {
+        return filmIds.stream()
+                .filter(filmId -> !films.containsKey(filmId))
+                .collect(Collectors.toList());
+    }
+
+    public boolean deleteLike(long filmId, long userId) {
+        boolean isDeleted = filmLocks.callLocked(filmId, () -> {
+            Film film = films.get(filmId);
+            if (!removeLike(film, userId)) {
+                return false;
+            }
+            updatePopularity(film);
+            return true;
+        });
+        if (isDeleted) {
+            mutationLog.sync();
+            log.debug("For the movie id = {}, the user's like  has been removed id={}", filmId, userId);
+        }
+        return isDeleted;
+    }
+
+    public List<Film> getPopularFilms(int count) {
+        log.debug("A list of {} movies with the most likes will appear", count);
+        return popularityIndex.getTopFilmIds(count).stream()
+                .map(films::get)
+                .collect(Collectors.toList());
+    }
+
+    public List<Film> getPopularFilms(int count, LocalDate from, LocalDate to) {
+        log.debug("A list of {} movies released from {} to {} with the most likes will appear", count, from, to);
+        NavigableMap<Integer, FilmPopularityIndex> indexes = popularityIndexByReleaseYear;
+        if (from != null) {
+            indexes = indexes.tailMap(from.getYear(), true);
+        }
+        if (to != null) {
+            indexes = indexes.headMap(to.getYear(), true);
+        }
+        return FilmPopularityIndex.getTopFilmIds(indexes.values(), count,
+                        filmId -> isReleasedBetween(films.get(filmId), from, to)).stream()
+                .map(films::get)
+                .collect(Collectors.toList());
+    }
+
+    public List<Film> getRecommendedFilms(long userId, int count) {
+        log.debug("A list of {} recommended movies will appear for the user id={}", count, userId);
+        return filmRecommendations.recommend(userId, count).stream()
+                .map(films::get)
+                .collect(Collectors.toList());
+    }
+
+    public List<Film> searchFilms(String query, boolean byName, boolean byDescription, int count) {
+        log.debug("A list of {} movies matching \"{}\" will appear", count, query);
+        List<String> words = FilmSearchIndex.tokenize(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        LongPredicate isMatching = filmId ->
+                FilmSearchIndex.matches(films.get(filmId), words, byName, byDescription);
+        long[] candidates = searchIndex.findCandidates(words, byName, byDescription);
+        if (candidates == null) {
+            return FilmPopularityIndex.getTopFilmIds(List.of(popularityIndex), count, isMatching,
+                            FilmSearchIndex.MAX_SCANNED).stream()
+                    .map(films::get)
+                    .collect(Collectors.toList());
+        }
+        IdCounter scores = new IdCounter(candidates.length);
+        for (long filmId : candidates) {
+            if (isMatching.test(filmId)) {
+                scores.add(filmId, films.get(filmId).getSetOfLikes().size() + 1);
+            }
+        }
+        return Arrays.stream(scores.top(count, filmId -> true))
+                .mapToObj(films::get)
+                .collect(Collectors.toList());
     }
 
-    public void addLike(int filmId, int userId) {
-        films.get(filmId).addLike(userId);
-        log.info("Movie id = {} added user  like id={}", filmId, userId);
+    public List<Like> addLikes(List<Like> likes) {
+        Map<Long, List<Long>> userIdsByFilm = likes.stream()
+                .collect(Collectors.groupingBy(Like::getFilmId,
+                        Collectors.mapping(Like::getUserId, Collectors.toList())));
+        List<Like> addedLikes = new ArrayList<>();
+        userIdsByFilm.forEach((filmId, userIds) -> filmLocks.runLocked(filmId, () -> {
+            Film film = films.get(filmId);
+            int addedBefore = addedLikes.size();
+            userIds.forEach(userId -> {
+                if (putLike(film, userId)) {
+                    addedLikes.add(new Like(filmId, userId));
+                }
+            });
+            if (addedLikes.size() > addedBefore) {
+                updatePopularity(film);
+            }
+        }));
+        if (!addedLikes.isEmpty()) {
+            mutationLog.sync();
+        }
+        log.debug("Added {} likes to {} movies", addedLikes.size(), userIdsByFilm.size());
+        return addedLikes;
     }
 
-    public void deleteLike(int filmId, int userId) {
-        films.get(filmId).deleteLike(userId);
-        log.info("For the movie id = {}, the user's like  has been removed id={}", filmId, userId);
+    public List<Like> deleteLikes(List<Like> likes) {
+        Map<Long, List<Long>> userIdsByFilm = likes.stream()
+                .collect(Collectors.groupingBy(Like::getFilmId,
+                        Collectors.mapping(Like::getUserId, Collectors.toList())));
+        List<Like> deletedLikes = new ArrayList<>();
+        userIdsByFilm.forEach((filmId, userIds) -> filmLocks.runLocked(filmId, () -> {
+            Film film = films.get(filmId);
+            int deletedBefore = deletedLikes.size();
+            userIds.forEach(userId -> {
+                if (removeLike(film, userId)) {
+                    deletedLikes.add(new Like(filmId, userId));
+                }
+            });
+            if (deletedLikes.size() > deletedBefore) {
+                updatePopularity(film);
+            }
+        }));
+        if (!deletedLikes.isEmpty()) {
+            mutationLog.sync();
+        }
+        log.debug("Deleted {} likes from {} movies", deletedLikes.size(), userIdsByFilm.size());
+        return deletedLikes;
     }
 
-    public boolean checkIsFilmInStorage(Film film) {
-        return films.containsValue(film);
+    public void forEachFilm(Consumer<Film> action) {
+        films.values().forEach(action);
     }
 
-    public boolean checkIsFilmInStorage(int filmId) {
+    public long getFilmsCount() {
+        return films.size();
+    }
+
+    public long getLikesCount() {
+        return likesCount.sum();
+    }
+
+    public boolean checkIsFilmInStorage(long filmId) {
         return films.containsKey(filmId);
     }
 
-    public boolean checkIsFilmHasLikeFromUser(int filmId, int userId) {
-        return films.get(filmId).getSetOfLikes().contains(userId);
+    void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    /**
+     * Puts a film read from a snapshot or the write-ahead log under its own id. A film that is already stored is
+     * updated and keeps its likes; a new one brings the likes it carries.
+     */
+    void restoreFilm(Film film) {
+        idGenerator.skipTo(film.getId());
+        if (film.getSetOfLikes() == null) {
+            film.generateSetOfLikes();
+        }
+        if (updateFilm(film).isPresent()) {
+            return;
+        }
+        filmLocks.runLocked(film.getId(), () -> {
+            putFilm(film);
+            for (long userId : film.getSetOfLikes().toArray()) {
+                likesCount.increment();
+                likedFilmIdsByUser.computeIfAbsent(userId, id -> new IdSet()).add(film.getId());
+            }
+            updatePopularity(film);
+        });
+    }
+
+    private void putNewFilm(Film newFilm) {
+        newFilm.setId(idGenerator.nextId());
+        newFilm.generateSetOfLikes();
+        filmLocks.runLocked(newFilm.getId(), () -> {
+            putFilm(newFilm);
+            mutationLog.filmSaved(newFilm);
+        });
+    }
+
+    private void putFilm(Film film) {
+        films.put(film.getId(), film);
+        filmIds.add(film.getId());
+        getFilmIdsByReleaseYear(film.getReleaseDate().getYear()).add(film.getId());
+        popularityIndex.addFilm(film.getId());
+        getPopularityIndexByReleaseYear(film.getReleaseDate().getYear()).addFilm(film.getId());
+        searchIndex.addFilm(film);
+    }
+
+    private boolean putLike(Film film, long userId) {
+        if (!film.addLike(userId)) {
+            return false;
+        }
+        film.setVersion(film.getVersion() + 1);
+        likesCount.increment();
+        likedFilmIdsByUser.computeIfAbsent(userId, id -> new IdSet()).add(film.getId());
+        mutationLog.likeAdded(film.getId(), userId);
+        return true;
+    }
+
+    private boolean removeLike(Film film, long userId) {
+        if (!film.deleteLike(userId)) {
+            return false;
+        }
+        film.setVersion(film.getVersion() + 1);
+        likesCount.decrement();
+        getLikedFilmIds(userId).remove(film.getId());
+        mutationLog.likeDeleted(film.getId(), userId);
+        return true;
+    }
+
+    private IdSet getLikedFilmIds(long userId) {
+        IdSet likedFilmIds = likedFilmIdsByUser.get(userId);
+        return likedFilmIds != null ? likedFilmIds : new IdSet();
+    }
+
+    private void updatePopularity(Film film) {
+        int likes = film.getSetOfLikes().size();
+        popularityIndex.updateLikes(film.getId(), likes);
+        getPopularityIndexByReleaseYear(film.getReleaseDate().getYear()).updateLikes(film.getId(), likes);
+    }
+
+    private FilmPopularityIndex getPopularityIndexByReleaseYear(int year) {
+        return popularityIndexByReleaseYear.computeIfAbsent(year, key -> new FilmPopularityIndex());
+    }
+
+    private boolean isReleasedBetween(Film film, LocalDate from, LocalDate to) {
+        LocalDate releaseDate = film.getReleaseDate();
+        return (from == null || !releaseDate.isBefore(from)) && (to == null || !releaseDate.isAfter(to));
+    }
+
+    private NavigableSet<Long> getFilmIdsByReleaseYear(int year) {
+        return filmIdsByReleaseYear.computeIfAbsent(year, key -> new ConcurrentSkipListSet<>());
     }
 }
\ No newline at end of file
@@ -1,76 +1,276 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
+@Timed("filmorate.storage")
 @Component
+@Qualifier("backend")
+@Profile("!db")
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users;
+    private static final long ANY_VERSION = -1;
+    private final Map<Long, User> users;
+    private final NavigableSet<Long> userIds;
+    private final LockStripes userLocks;
+    private final IdGenerator idGenerator;
+    private final LongAdder friendshipsCount;
+    private final FriendRecommendations friendRecommendations;
+    private volatile MutationLog mutationLog = MutationLog.NONE;
 
     public InMemoryUserStorage() {
-        users = new HashMap<>();
+        users = new ConcurrentHashMap<>();
+        userIds = new ConcurrentSkipListSet<>();
+        userLocks = new LockStripes();
+        idGenerator = new AtomicIdGenerator();
+        friendshipsCount = new LongAdder();
+        friendRecommendations = new FriendRecommendations(id -> users.get(id).getSetOfFriends());
     }
 
     public User addUser(User newUser) {
-        newUser.generateAndSetId();
-        newUser.generateSetOfFriends();
-        users.put(newUser.getId(), newUser);
-        log.info("A new user has been added id={}", newUser.getId());
+        putNewUser(newUser);
+        mutationLog.sync();
+        log.debug("A new user has been added id={}", newUser.getId());
         return newUser;
     }
 
-    public User updateUser(User updatedUser) {
-        updatedUser.setSetOfFriends(users.get(updatedUser.getId()).getSetOfFriends());
-        users.put(updatedUser.getId(), updatedUser);
-        log.info("User id = {} data updated", updatedUser.getId());
-        return updatedUser;
+    public void addUsers(List<User> newUsers) {
+        newUsers.forEach(this::putNewUser);
+        mutationLog.sync();
+        log.debug("Added {} new users", newUsers.size());
+    }
+
+    public Optional<User> updateUser(User updatedUser) {
+        return updateUser(updatedUser, ANY_VERSION);
+    }
+
+    /**
+     * Replaces the stored user if its version is still the expected one. Every change of a user, its friends
+     * included, bumps the version.
+     */
+    public Optional<User> updateUser(User updatedUser, long expectedVersion) {
+        User storedUser = userLocks.callLocked(updatedUser.getId(), () ->
+                users.computeIfPresent(updatedUser.getId(), (id, oldUser) -> {
+                    if (expectedVersion != ANY_VERSION && oldUser.getVersion() != expectedVersion) {
+                        log.info("User id={} has version {} instead of {}", id, oldUser.getVersion(),
+                                expectedVersion);
+                        throw new PreconditionFailedException(String.format("User id=%s has been changed " +
+                                "since version %s", id, expectedVersion));
+                    }
+                    updatedUser.setSetOfFriends(oldUser.getSetOfFriends());
+                    updatedUser.setVersion(oldUser.getVersion() + 1);
+                    mutationLog.userSaved(updatedUser);
+                    return updatedUser;
+                }));
+        if (storedUser != null) {
+            mutationLog.sync();
+            log.debug("User id = {} data updated", updatedUser.getId());
+        }
+        return Optional.ofNullable(storedUser);
     }
 
     public List<User> getAllUsers() {
-        log.info("Get a list of all users");
+        log.debug("Get a list of all users");
         return new ArrayList<>(users.values());
     }
 
-    public User getUserById(int userId) {
-        log.info("User received id={}", userId);
-        return users.get(userId);
+    public List<User> getUsers(long afterId, int limit) {
+        log.debug("Get a page of {} users after id={}", limit, afterId);
+        List<User> page = new ArrayList<>();
+        Iterator<Long> ids = userIds.tailSet(afterId, false).iterator();
+        while (page.size() < limit && ids.hasNext()) {
+            page.add(users.get(ids.next()));
+        }
+        return page;
     }
 
-    public void addFriend(int userId, int friendId) {
-        users.get(userId).addFriend(friendId);
-        log.info("To the user id={} add a new friend id={}", userId, friendId);
-        users.get(friendId).addFriend(userId);
-        log.info("To the user id={} add a new friend id={}", friendId, userId);
+    public Optional<User> getUserById(long userId) {
+        log.debug("User received id={}", userId);
+        return Optional.ofNullable(users.get(userId));
     }
 
-    public void deleteFriend(int userId, int friendId) {
-        users.get(userId).deleteFriend(friendId);
-        log.info("From the user's friends list id={} friend deleted id={}", userId, friendId);
-        users.get(friendId).deleteFriend(userId);
-        log.info("From the user's friends list id={} friend deleted id={}", friendId, userId);
+    public List<User> getUsersByIds(List<Long> userIds) {
+        log.debug("Get a list of {} users by id", userIds.size());
+        return userIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
-    public List<User> getListOfFriends(int userId) {
-        log.info("The user's friends list is sent id={}", userId);
+    public List<Long> getMissingUserIds(List<Long> userIds) {
+        return userIds.stream()
+                .filter(userId -> !users.containsKey(userId))
+                .collect(Collectors.toList());
+    }
+
+    public void addFriend(long userId, long friendId) {
+        userLocks.runLocked(userId, friendId, () -> putFriendship(userId, friendId));
+        mutationLog.sync();
+        log.debug("To the user id={} add a new friend id={}", userId, friendId);
+        log.debug("To the user id={} add a new friend id={}", friendId, userId);
+    }
+
+    public boolean deleteFriend(long userId, long friendId) {
+        boolean isDeleted = userLocks.callLocked(userId, friendId, () -> removeFriendship(userId, friendId));
+        if (isDeleted) {
+            mutationLog.sync();
+            log.debug("From the user's friends list id={} friend deleted id={}", userId, friendId);
+            log.debug("From the user's friends list id={} friend deleted id={}", friendId, userId);
+        }
+        return isDeleted;
+    }
+
+    public List<User> getListOfFriends(long userId) {
+        log.debug("The user's friends list is sent id={}", userId);
         return users.get(userId).getSetOfFriends().stream()
-                .map(users::get)
+                .mapToObj(users::get)
+                .collect(Collectors.toList());
+    }
+
+    public List<User> getListOfCommonFriends(long userId, long otherUserId, long afterId, int limit) {
+        log.debug("A shared list of users' friends is sent id={} и id={}", userId, otherUserId);
+        long[] commonFriendIds = users.get(userId).getSetOfFriends()
+                .intersect(users.get(otherUserId).getSetOfFriends());
+        int from = Arrays.binarySearch(commonFriendIds, afterId);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = (int) Math.min(commonFriendIds.length, (long) from + limit);
+        return Arrays.stream(commonFriendIds, from, to)
+                .mapToObj(users::get)
+                .collect(Collectors.toList());
+    }
+
+    public List<User> getRecommendedFriends(long userId, int count) {
+        log.debug("A list of {} recommended friends is sent id={}", count, userId);
+        return Arrays.stream(friendRecommendations.recommend(userId, count))
+                .mapToObj(users::get)
                 .collect(Collectors.toList());
     }
 
-    public boolean checkIsUserInStorage(User user) {
-        return users.containsValue(user);
+    public void addFriendships(List<Friendship> friendships) {
+        for (Friendship friendship : friendships) {
+            userLocks.runLocked(friendship.getUserId(), friendship.getFriendId(),
+                    () -> putFriendship(friendship.getUserId(), friendship.getFriendId()));
+        }
+        mutationLog.sync();
+        log.debug("Added {} friendships", friendships.size());
     }
 
-    public boolean checkIsUserInStorage(int userId) {
+    public List<Friendship> deleteFriendships(List<Friendship> friendships) {
+        List<Friendship> deletedFriendships = new ArrayList<>();
+        for (Friendship friendship : friendships) {
+            if (userLocks.callLocked(friendship.getUserId(), friendship.getFriendId(),
+                    () -> removeFriendship(friendship.getUserId(), friendship.getFriendId()))) {
+                deletedFriendships.add(friendship);
+            }
+        }
+        if (!deletedFriendships.isEmpty()) {
+            mutationLog.sync();
+        }
+        log.debug("Deleted {} friendships", deletedFriendships.size());
+        return deletedFriendships;
+    }
+
+    public void forEachUser(Consumer<User> action) {
+        users.values().forEach(action);
+    }
+
+    public long getUsersCount() {
+        return users.size();
+    }
+
+    public long getFriendshipsCount() {
+        return friendshipsCount.sum();
+    }
+
+    public boolean checkIsUserInStorage(long userId) {
         return users.containsKey(userId);
     }
 
-    public boolean checkAreTheseUsersFriends(Integer userId, Integer friendId) {
+    public boolean checkAreTheseUsersFriends(long userId, long friendId) {
         return (users.get(userId).getSetOfFriends().contains(friendId));
     }
+
+    private boolean putFriendship(long userId, long friendId) {
+        User user = users.get(userId);
+        User friend = users.get(friendId);
+        boolean isAdded = user.addFriend(friendId);
+        if (isAdded) {
+            friendshipsCount.increment();
+            user.setVersion(user.getVersion() + 1);
+        }
+        if (friend.addFriend(userId)) {
+            friend.setVersion(friend.getVersion() + 1);
+            isAdded = true;
+        }
+        if (isAdded) {
+            mutationLog.friendAdded(userId, friendId);
+        }
+        return isAdded;
+    }
+
+    private boolean removeFriendship(long userId, long friendId) {
+        User user = users.get(userId);
+        User friend = users.get(friendId);
+        if (!user.deleteFriend(friendId)) {
+            return false;
+        }
+        friend.deleteFriend(userId);
+        user.setVersion(user.getVersion() + 1);
+        friend.setVersion(friend.getVersion() + 1);
+        friendshipsCount.decrement();
+        mutationLog.friendDeleted(userId, friendId);
+        return true;
+    }
+
+    void setMutationLog(MutationLog mutationLog) {
+        this.mutationLog = mutationLog;
+    }
+
+    /**
+     * Puts a user read from a snapshot or the write-ahead log under its own id. A user that is already stored is
+     * updated and keeps its friends; a new one brings the friends it carries, each friendship being counted
+     * on the side of the smaller id.
+     */
+    void restoreUser(User user) {
+        idGenerator.skipTo(user.getId());
+        if (user.getSetOfFriends() == null) {
+            user.generateSetOfFriends();
+        }
+        if (updateUser(user).isPresent()) {
+            return;
+        }
+        userLocks.runLocked(user.getId(), () -> {
+            putUser(user);
+            user.getSetOfFriends().stream()
+                    .filter(friendId -> friendId > user.getId())
+                    .forEach(friendId -> friendshipsCount.increment());
+        });
+    }
+
+    private void putNewUser(User newUser) {
+        newUser.setId(idGenerator.nextId());
+        newUser.generateSetOfFriends();
+        userLocks.runLocked(newUser.getId(), () -> {
+            putUser(newUser);
+            mutationLog.userSaved(newUser);
+        });
+    }
+
+    private void putUser(User user) {
+        users.put(user.getId(), user);
+        userIds.add(user.getId());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+class LockStripes {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    LockStripes() {
+        this(Runtime.getRuntime().availableProcessors() * 16);
+    }
+
+    LockStripes(int minStripes) {
+        int stripes = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = stripes - 1;
+    }
+
+    public <T> T callLocked(long id, Supplier<T> action) {
+        ReentrantLock lock = locks[indexOf(id)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void runLocked(long id, Runnable action) {
+        callLocked(id, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public <T> T callLocked(long firstId, long secondId, Supplier<T> action) {
+        int firstIndex = indexOf(firstId);
+        int secondIndex = indexOf(secondId);
+        if (firstIndex == secondIndex) {
+            return callLocked(firstId, action);
+        }
+        ReentrantLock outer = locks[Math.min(firstIndex, secondIndex)];
+        ReentrantLock inner = locks[Math.max(firstIndex, secondIndex)];
+        outer.lock();
+        try {
+            inner.lock();
+            try {
+                return action.get();
+            } finally {
+                inner.unlock();
+            }
+        } finally {
+            outer.unlock();
+        }
+    }
+
+    public void runLocked(long firstId, long secondId, Runnable action) {
+        callLocked(firstId, secondId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private int indexOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
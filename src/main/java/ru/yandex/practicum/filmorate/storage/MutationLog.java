@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Receives every mutation of the in-memory storages. The storages record a change while still holding the lock
+ * that guards it, so records of one entity are logged in the order they were applied, and call {@link #sync()}
+ * once the lock is released.
+ */
+public interface MutationLog {
+    MutationLog NONE = new MutationLog() {
+        @Override
+        public void filmSaved(Film film) {
+        }
+
+        @Override
+        public void likeAdded(long filmId, long userId) {
+        }
+
+        @Override
+        public void likeDeleted(long filmId, long userId) {
+        }
+
+        @Override
+        public void userSaved(User user) {
+        }
+
+        @Override
+        public void friendAdded(long userId, long friendId) {
+        }
+
+        @Override
+        public void friendDeleted(long userId, long friendId) {
+        }
+
+        @Override
+        public void sync() {
+        }
+    };
+
+    void filmSaved(Film film);
+
+    void likeAdded(long filmId, long userId);
+
+    void likeDeleted(long filmId, long userId);
+
+    void userSaved(User user);
+
+    void friendAdded(long userId, long friendId);
+
+    void friendDeleted(long userId, long friendId);
+
+    /**
+     * Blocks until every record logged so far, including the caller's own, is durable.
+     */
+    void sync();
+}
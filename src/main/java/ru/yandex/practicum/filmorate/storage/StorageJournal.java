@@ -0,0 +1,242 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Makes the in-memory storages survive restarts. Every mutation is appended to a {@link WriteAheadLog} and a
+ * request returns only after its record is durable. A periodic snapshot lets the log segments it covers be
+ * deleted, so startup loads the latest snapshot and replays only the segments written after it.
+ */
+@Slf4j
+@Component
+@Profile("!db")
+@ConditionalOnProperty(name = "filmorate.persistence.enabled", havingValue = "true")
+public class StorageJournal implements MutationLog {
+    private static final byte FILM_SAVED = 1;
+    private static final byte LIKE_ADDED = 2;
+    private static final byte LIKE_DELETED = 3;
+    private static final byte USER_SAVED = 4;
+    private static final byte FRIEND_ADDED = 5;
+    private static final byte FRIEND_DELETED = 6;
+    private static final int PAIR_RECORD_SIZE = 1 + 2 * Long.BYTES;
+    private static final int REPLAY_BATCH_SIZE = 100_000;
+    private final InMemoryFilmStorage filmStorage;
+    private final InMemoryUserStorage userStorage;
+    private final Path directory;
+    private final boolean fsync;
+    private final Duration snapshotInterval;
+    private final ScheduledExecutorService snapshotExecutor;
+    private final List<Like> replayedLikes = new ArrayList<>();
+    private WriteAheadLog writeAheadLog;
+
+    @Autowired
+    public StorageJournal(InMemoryFilmStorage filmStorage, InMemoryUserStorage userStorage,
+                          @Value("${filmorate.persistence.directory}") Path directory,
+                          @Value("${filmorate.persistence.fsync}") boolean fsync,
+                          @Value("${filmorate.persistence.snapshot-interval}") Duration snapshotInterval) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.directory = directory;
+        this.fsync = fsync;
+        this.snapshotInterval = snapshotInterval;
+        this.snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "storage-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        long startedAt = System.nanoTime();
+        Files.createDirectories(directory);
+        OptionalLong snapshotSegment = StorageSnapshot.findLatest(directory);
+        if (snapshotSegment.isPresent()) {
+            StorageSnapshot.read(directory, snapshotSegment.getAsLong(), filmStorage, userStorage);
+        }
+        long records = WriteAheadLog.replay(directory, snapshotSegment.orElse(0), this::apply);
+        flushReplayedLikes();
+        log.info("Recovered {} movies and {} users from the snapshot and {} logged changes in {} ms",
+                filmStorage.getFilmsCount(), userStorage.getUsersCount(), records,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        writeAheadLog = new WriteAheadLog(directory, fsync);
+        filmStorage.setMutationLog(this);
+        userStorage.setMutationLog(this);
+        long intervalMillis = snapshotInterval.toMillis();
+        snapshotExecutor.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        snapshotExecutor.shutdownNow();
+        filmStorage.setMutationLog(MutationLog.NONE);
+        userStorage.setMutationLog(MutationLog.NONE);
+        writeAheadLog.close();
+    }
+
+    /**
+     * Starts a new log segment and dumps the storages into a snapshot named after it. Every record of the older
+     * segments was applied before it was logged, so the snapshot contains them and they can be deleted.
+     */
+    public synchronized void snapshot() throws IOException {
+        long startedAt = System.nanoTime();
+        long segment = writeAheadLog.rotate();
+        StorageSnapshot.write(directory, segment, filmStorage, userStorage);
+        writeAheadLog.deleteSegmentsBefore(segment);
+        StorageSnapshot.deleteBefore(directory, segment);
+        log.info("Wrote the storage snapshot {} in {} ms", segment,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    }
+
+    @Override
+    public void filmSaved(Film film) {
+        writeAheadLog.append(encode(FILM_SAVED, out -> EntityCodec.writeFilm(out, film)));
+    }
+
+    @Override
+    public void likeAdded(long filmId, long userId) {
+        writeAheadLog.append(encodePair(LIKE_ADDED, filmId, userId));
+    }
+
+    @Override
+    public void likeDeleted(long filmId, long userId) {
+        writeAheadLog.append(encodePair(LIKE_DELETED, filmId, userId));
+    }
+
+    @Override
+    public void userSaved(User user) {
+        writeAheadLog.append(encode(USER_SAVED, out -> EntityCodec.writeUser(out, user)));
+    }
+
+    @Override
+    public void friendAdded(long userId, long friendId) {
+        writeAheadLog.append(encodePair(FRIEND_ADDED, userId, friendId));
+    }
+
+    @Override
+    public void friendDeleted(long userId, long friendId) {
+        writeAheadLog.append(encodePair(FRIEND_DELETED, userId, friendId));
+    }
+
+    @Override
+    public void sync() {
+        writeAheadLog.sync();
+    }
+
+    /**
+     * Applies a logged change during startup. Runs of added likes are collected and stored with one
+     * {@link InMemoryFilmStorage#addLikes} call, so a film is re-ranked once per run instead of once per like.
+     */
+    private void apply(ByteBuffer record) {
+        byte type = record.get();
+        if (type == LIKE_ADDED) {
+            replayedLikes.add(new Like(record.getLong(), record.getLong()));
+            if (replayedLikes.size() == REPLAY_BATCH_SIZE) {
+                flushReplayedLikes();
+            }
+            return;
+        }
+        flushReplayedLikes();
+        switch (type) {
+            case FILM_SAVED:
+                filmStorage.restoreFilm(EntityCodec.readFilm(record));
+                break;
+            case USER_SAVED:
+                userStorage.restoreUser(EntityCodec.readUser(record));
+                break;
+            case LIKE_DELETED:
+                long filmId = record.getLong();
+                long likingUserId = record.getLong();
+                if (filmStorage.checkIsFilmInStorage(filmId)) {
+                    filmStorage.deleteLike(filmId, likingUserId);
+                }
+                break;
+            case FRIEND_ADDED:
+            case FRIEND_DELETED:
+                long userId = record.getLong();
+                long friendId = record.getLong();
+                if (!userStorage.checkIsUserInStorage(userId) || !userStorage.checkIsUserInStorage(friendId)) {
+                    log.warn("Skipped a logged friendship of the missing users id={} and id={}", userId, friendId);
+                } else if (type == FRIEND_ADDED) {
+                    userStorage.addFriend(userId, friendId);
+                } else {
+                    userStorage.deleteFriend(userId, friendId);
+                }
+                break;
+            default:
+                throw new IllegalStateException(String.format("Unknown write-ahead log record type %s", type));
+        }
+    }
+
+    private void flushReplayedLikes() {
+        if (replayedLikes.isEmpty()) {
+            return;
+        }
+        List<Like> likes = replayedLikes.stream()
+                .filter(like -> filmStorage.checkIsFilmInStorage(like.getFilmId()))
+                .collect(Collectors.toList());
+        if (likes.size() < replayedLikes.size()) {
+            log.warn("Skipped {} logged likes of missing movies", replayedLikes.size() - likes.size());
+        }
+        filmStorage.addLikes(likes);
+        replayedLikes.clear();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write the storage snapshot", e);
+        }
+    }
+
+    private static byte[] encodePair(byte type, long firstId, long secondId) {
+        return ByteBuffer.allocate(PAIR_RECORD_SIZE)
+                .put(type)
+                .putLong(firstId)
+                .putLong(secondId)
+                .array();
+    }
+
+    private static byte[] encode(byte type, RecordWriter recordWriter) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            recordWriter.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,255 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary dump of the in-memory storages named after the first write-ahead log segment it does not cover.
+ * The dump is taken while the storages keep changing, so replaying that segment and the later ones may repeat
+ * changes the dump already contains; every logged mutation is idempotent, so the result is the same.
+ *
+ * <p>Layout, version 1: the magic number and the version, then sections of up to {@link #SECTION_SIZE} films or
+ * users encoded by {@link EntityCodec} together with their like or friend ids, then the table of sections
+ * (type, offset, length, entity count and CRC32C of every section), and a trailer holding the table's offset,
+ * the table's CRC32C and the magic number again. Sections are mapped and loaded in parallel.
+ */
+final class StorageSnapshot {
+    static final int SECTION_SIZE = 16_384;
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int MAGIC = 0x464D5353;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int TRAILER_SIZE = Long.BYTES + 2 * Integer.BYTES;
+    private static final byte FILMS = 1;
+    private static final byte USERS = 2;
+
+    private StorageSnapshot() {
+    }
+
+    static void write(Path directory, long segment, InMemoryFilmStorage filmStorage,
+                      InMemoryUserStorage userStorage) throws IOException {
+        Path temporaryFile = directory.resolve(PREFIX + segment + SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip());
+            List<Section> sections = new ArrayList<>();
+            try (SectionWriter films = new SectionWriter(channel, FILMS, sections)) {
+                filmStorage.forEachFilm(film -> films.write(out -> {
+                    EntityCodec.writeFilm(out, film);
+                    EntityCodec.writeIds(out, film.getSetOfLikes());
+                }));
+            }
+            try (SectionWriter users = new SectionWriter(channel, USERS, sections)) {
+                userStorage.forEachUser(user -> users.write(out -> {
+                    EntityCodec.writeUser(out, user);
+                    EntityCodec.writeIds(out, user.getSetOfFriends());
+                }));
+            }
+            long tableOffset = channel.position();
+            ByteBuffer table = ByteBuffer.allocate(Integer.BYTES + sections.size() * Section.SIZE)
+                    .putInt(sections.size());
+            sections.forEach(section -> section.writeTo(table));
+            table.flip();
+            int tableChecksum = checksum(table.duplicate());
+            writeFully(channel, table);
+            writeFully(channel, ByteBuffer.allocate(TRAILER_SIZE)
+                    .putLong(tableOffset)
+                    .putInt(tableChecksum)
+                    .putInt(MAGIC)
+                    .flip());
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporaryFile, snapshotPath(directory, segment), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static void read(Path directory, long segment, InMemoryFilmStorage filmStorage,
+                     InMemoryUserStorage userStorage) throws IOException {
+        Path file = snapshotPath(directory, segment);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - TRAILER_SIZE, TRAILER_SIZE);
+            if (header.getInt() != MAGIC || trailer.getInt(Long.BYTES + Integer.BYTES) != MAGIC) {
+                throw new IOException(String.format("%s is not a complete storage snapshot", file));
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(String.format("%s has the unsupported version %s", file, version));
+            }
+            long tableOffset = trailer.getLong();
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset,
+                    size - TRAILER_SIZE - tableOffset);
+            if (checksum(table.duplicate()) != trailer.getInt()) {
+                throw new IOException(String.format("%s has a corrupted section table", file));
+            }
+            List<Section> sections = new ArrayList<>();
+            for (int i = table.getInt(); i > 0; i--) {
+                sections.add(Section.readFrom(table));
+            }
+            sections.parallelStream().forEach(section -> {
+                try {
+                    ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, section.offset, section.length);
+                    if (checksum(in.duplicate()) != section.checksum) {
+                        throw new IOException(String.format("%s has a corrupted section at %s", file,
+                                section.offset));
+                    }
+                    for (int i = 0; i < section.entities; i++) {
+                        if (section.type == FILMS) {
+                            Film film = EntityCodec.readFilm(in);
+                            film.setSetOfLikes(EntityCodec.readIds(in));
+                            filmStorage.restoreFilm(film);
+                        } else {
+                            User user = EntityCodec.readUser(in);
+                            user.setSetOfFriends(EntityCodec.readIds(in));
+                            userStorage.restoreUser(user);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static OptionalLong findLatest(Path directory) throws IOException {
+        return listSnapshots(directory).stream().mapToLong(Long::longValue).max();
+    }
+
+    static void deleteBefore(Path directory, long segment) throws IOException {
+        for (long oldSegment : listSnapshots(directory)) {
+            if (oldSegment < segment) {
+                Files.delete(snapshotPath(directory, oldSegment));
+            }
+        }
+    }
+
+    private static List<Long> listSnapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Path snapshotPath(Path directory, long segment) {
+        return directory.resolve(PREFIX + segment + SUFFIX);
+    }
+
+    private static int checksum(ByteBuffer buffer) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer);
+        return (int) checksum.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static final class Section {
+        private static final int SIZE = 1 + Long.BYTES + 3 * Integer.BYTES;
+        private final byte type;
+        private final long offset;
+        private final int length;
+        private final int entities;
+        private final int checksum;
+
+        private Section(byte type, long offset, int length, int entities, int checksum) {
+            this.type = type;
+            this.offset = offset;
+            this.length = length;
+            this.entities = entities;
+            this.checksum = checksum;
+        }
+
+        private void writeTo(ByteBuffer out) {
+            out.put(type).putLong(offset).putInt(length).putInt(entities).putInt(checksum);
+        }
+
+        private static Section readFrom(ByteBuffer in) {
+            return new Section(in.get(), in.getLong(), in.getInt(), in.getInt(), in.getInt());
+        }
+    }
+
+    /**
+     * Buffers entities of one type and writes them to the file a section at a time.
+     */
+    private static final class SectionWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final byte type;
+        private final List<Section> sections;
+        private final ExposedByteArrayOutputStream bytes = new ExposedByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int entities;
+
+        private SectionWriter(FileChannel channel, byte type, List<Section> sections) {
+            this.channel = channel;
+            this.type = type;
+            this.sections = sections;
+        }
+
+        private void write(EntityWriter entityWriter) {
+            try {
+                entityWriter.write(out);
+                if (++entities == SECTION_SIZE) {
+                    flushSection();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (entities > 0) {
+                flushSection();
+            }
+        }
+
+        private void flushSection() throws IOException {
+            ByteBuffer section = ByteBuffer.wrap(bytes.buffer(), 0, bytes.size());
+            sections.add(new Section(type, channel.position(), bytes.size(), entities, checksum(section.duplicate())));
+            writeFully(channel, section);
+            bytes.reset();
+            entities = 0;
+        }
+    }
+
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        private ExposedByteArrayOutputStream() {
+            super(1 << 20);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+
+    private interface EntityWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,401 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@Slf4j
+@Timed("filmorate.storage")
+@Component
+@Qualifier("backend")
+@Profile("db")
+public class UserDbStorage implements UserStorage {
+    private static final String SELECT_USERS = "SELECT u.user_id, u.email, u.login, u.name, u.birthday, u.version " +
+            "FROM users AS u";
+    private static final String INSERT_FRIENDSHIP = "MERGE INTO friendships AS f " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS n (user_id, friend_id) " +
+            "ON f.user_id = n.user_id AND f.friend_id = n.friend_id " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, friend_id) VALUES (n.user_id, n.friend_id)";
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final SimpleJdbcInsert userInsert;
+
+    @Autowired
+    public UserDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingColumns("email", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("user_id");
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        log.debug("Get a list of all users");
+        List<User> users = jdbcTemplate.query(SELECT_USERS + " ORDER BY u.user_id", this::mapRowToUser);
+        Map<Long, User> usersById = users.stream().collect(Collectors.toMap(User::getId, Function.identity()));
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friendships", rs -> {
+            usersById.get(rs.getLong("user_id")).addFriend(rs.getLong("friend_id"));
+        });
+        return users;
+    }
+
+    @Override
+    public List<User> getUsers(long afterId, int limit) {
+        log.debug("Get a page of {} users after id={}", limit, afterId);
+        List<User> users = jdbcTemplate.query(SELECT_USERS + " WHERE u.user_id > ? ORDER BY u.user_id LIMIT ?",
+                this::mapRowToUser, afterId, limit);
+        loadFriends(users.stream().collect(Collectors.toMap(User::getId, Function.identity())));
+        return users;
+    }
+
+    @Override
+    public Optional<User> getUserById(long userId) {
+        log.debug("User received id={}", userId);
+        List<User> users = jdbcTemplate.query(SELECT_USERS + " WHERE u.user_id = ?", this::mapRowToUser, userId);
+        if (users.isEmpty()) {
+            return Optional.empty();
+        }
+        User user = users.get(0);
+        loadFriends(Map.of(userId, user));
+        return Optional.of(user);
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<Long> userIds) {
+        log.debug("Get a list of {} users by id", userIds.size());
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, User> usersById = namedParameterJdbcTemplate.query(SELECT_USERS + " WHERE u.user_id IN (:user_ids)",
+                        new MapSqlParameterSource("user_ids", userIds), this::mapRowToUser).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        loadFriends(usersById);
+        return userIds.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Long> getMissingUserIds(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> storedUserIds = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT user_id FROM users WHERE user_id IN (:user_ids)",
+                new MapSqlParameterSource("user_ids", userIds), Long.class));
+        return userIds.stream()
+                .filter(userId -> !storedUserIds.contains(userId))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public User addUser(User newUser) {
+        long userId = userInsert.executeAndReturnKey(toParameters(newUser)).longValue();
+        newUser.setId(userId);
+        newUser.generateSetOfFriends();
+        log.debug("A new user has been added id={}", userId);
+        return newUser;
+    }
+
+    @Override
+    @Transactional
+    public void addFriend(long userId, long friendId) {
+        insertFriendships(List.of(new Object[]{userId, friendId}, new Object[]{friendId, userId}));
+        log.debug("To the user id={} add a new friend id={}", userId, friendId);
+        log.debug("To the user id={} add a new friend id={}", friendId, userId);
+    }
+
+    @Override
+    @Transactional
+    public Optional<User> updateUser(User updatedUser) {
+        return saveUser(updatedUser, null);
+    }
+
+    @Override
+    @Transactional
+    public Optional<User> updateUser(User updatedUser, long expectedVersion) {
+        return saveUser(updatedUser, expectedVersion);
+    }
+
+    private Optional<User> saveUser(User updatedUser, Long expectedVersion) {
+        List<Long> versions = jdbcTemplate.queryForList("SELECT version FROM users WHERE user_id = ? FOR UPDATE",
+                Long.class, updatedUser.getId());
+        if (versions.isEmpty()) {
+            return Optional.empty();
+        }
+        long version = versions.get(0);
+        if (expectedVersion != null && version != expectedVersion) {
+            log.info("User id={} has version {} instead of {}", updatedUser.getId(), version, expectedVersion);
+            throw new PreconditionFailedException(String.format("User id=%s has been changed since version %s",
+                    updatedUser.getId(), expectedVersion));
+        }
+        namedParameterJdbcTemplate.update("UPDATE users SET email = :email, login = :login, name = :name, " +
+                        "birthday = :birthday, version = :version WHERE user_id = :user_id",
+                toParameters(updatedUser)
+                        .addValue("version", version + 1)
+                        .addValue("user_id", updatedUser.getId()));
+        updatedUser.setVersion(version + 1);
+        updatedUser.generateSetOfFriends();
+        loadFriends(Map.of(updatedUser.getId(), updatedUser));
+        log.debug("User id = {} data updated", updatedUser.getId());
+        return Optional.of(updatedUser);
+    }
+
+    @Override
+    public boolean checkIsUserInStorage(long userId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS(SELECT 1 FROM users WHERE user_id = ?)", Boolean.class, userId));
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteFriend(long userId, long friendId) {
+        boolean isDeleted = jdbcTemplate.update("DELETE FROM friendships " +
+                        "WHERE (user_id = ? AND friend_id = ?) OR (user_id = ? AND friend_id = ?)",
+                userId, friendId, friendId, userId) > 0;
+        if (isDeleted) {
+            incrementVersions(List.of(userId, friendId));
+            log.debug("From the user's friends list id={} friend deleted id={}", userId, friendId);
+            log.debug("From the user's friends list id={} friend deleted id={}", friendId, userId);
+        }
+        return isDeleted;
+    }
+
+    @Override
+    public List<User> getListOfFriends(long userId) {
+        log.debug("The user's friends list is sent id={}", userId);
+        List<User> friends = jdbcTemplate.query(SELECT_USERS +
+                " JOIN friendships AS f ON f.friend_id = u.user_id " +
+                "WHERE f.user_id = ? ORDER BY u.user_id", this::mapRowToUser, userId);
+        loadFriends(friends.stream().collect(Collectors.toMap(User::getId, Function.identity())));
+        return friends;
+    }
+
+    @Override
+    public List<User> getListOfCommonFriends(long userId, long otherUserId, long afterId, int limit) {
+        log.debug("A shared list of users' friends is sent id={} и id={}", userId, otherUserId);
+        List<User> commonFriends = jdbcTemplate.query(SELECT_USERS +
+                " JOIN friendships AS f1 ON f1.friend_id = u.user_id AND f1.user_id = ? " +
+                "JOIN friendships AS f2 ON f2.friend_id = u.user_id AND f2.user_id = ? " +
+                "WHERE u.user_id > ? ORDER BY u.user_id LIMIT ?", this::mapRowToUser,
+                userId, otherUserId, afterId, limit);
+        loadFriends(commonFriends.stream().collect(Collectors.toMap(User::getId, Function.identity())));
+        return commonFriends;
+    }
+
+    @Override
+    public boolean checkAreTheseUsersFriends(long userId, long friendId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS(SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?)",
+                Boolean.class, userId, friendId));
+    }
+
+    @Override
+    public void addUsers(List<User> newUsers) {
+        jdbcTemplate.execute((Connection connection) -> connection.prepareStatement("INSERT INTO users " +
+                "(email, login, name, birthday) VALUES (?, ?, ?, ?)",
+                new String[]{"user_id"}), (PreparedStatement ps) -> {
+            for (User user : newUsers) {
+                ps.setString(1, user.getEmail());
+                ps.setString(2, user.getLogin());
+                ps.setString(3, user.getName());
+                ps.setObject(4, user.getBirthday());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (User user : newUsers) {
+                    if (!keys.next()) {
+                        throw new IllegalStateException("No generated id for the user " + user.getLogin());
+                    }
+                    user.setId(keys.getLong(1));
+                    user.generateSetOfFriends();
+                }
+            }
+            return null;
+        });
+        log.debug("Added {} new users", newUsers.size());
+    }
+
+    @Override
+    @Transactional
+    public void addFriendships(List<Friendship> friendships) {
+        List<Object[]> rows = new ArrayList<>(friendships.size() * 2);
+        for (Friendship friendship : friendships) {
+            rows.add(new Object[]{friendship.getUserId(), friendship.getFriendId()});
+            rows.add(new Object[]{friendship.getFriendId(), friendship.getUserId()});
+        }
+        insertFriendships(rows);
+        log.debug("Added {} friendships", friendships.size());
+    }
+
+    @Override
+    @Transactional
+    public List<Friendship> deleteFriendships(List<Friendship> friendships) {
+        int[][] deletedRows = jdbcTemplate.batchUpdate("DELETE FROM friendships " +
+                        "WHERE (user_id = ? AND friend_id = ?) OR (user_id = ? AND friend_id = ?)",
+                friendships, friendships.size(), (ps, friendship) -> {
+                    ps.setLong(1, friendship.getUserId());
+                    ps.setLong(2, friendship.getFriendId());
+                    ps.setLong(3, friendship.getFriendId());
+                    ps.setLong(4, friendship.getUserId());
+                });
+        List<Friendship> deletedFriendships = new ArrayList<>();
+        for (int i = 0; i < friendships.size(); i++) {
+            if (deletedRows[0][i] > 0) {
+                deletedFriendships.add(friendships.get(i));
+            }
+        }
+        incrementVersions(deletedFriendships.stream()
+                .flatMap(friendship -> Stream.of(friendship.getUserId(), friendship.getFriendId()))
+                .collect(Collectors.toSet()));
+        log.debug("Deleted {} friendships", deletedFriendships.size());
+        return deletedFriendships;
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        AtomicReference<User> currentUser = new AtomicReference<>();
+        jdbcTemplate.query("SELECT u.user_id, u.email, u.login, u.name, u.birthday, u.version, f.friend_id " +
+                "FROM users AS u " +
+                "LEFT JOIN friendships AS f ON f.user_id = u.user_id ORDER BY u.user_id", rs -> {
+                    User user = currentUser.get();
+                    if (user == null || user.getId() != rs.getLong("user_id")) {
+                        if (user != null) {
+                            action.accept(user);
+                        }
+                        user = mapRowToUser(rs, rs.getRow());
+                        currentUser.set(user);
+                    }
+                    long friendId = rs.getLong("friend_id");
+                    if (!rs.wasNull()) {
+                        user.addFriend(friendId);
+                    }
+                });
+        if (currentUser.get() != null) {
+            action.accept(currentUser.get());
+        }
+    }
+
+    /**
+     * Mirrors {@link FriendRecommendations}: every friend list is read at most
+     * {@link FriendRecommendations#MAX_FAN_OUT} entries deep, taking the lowest ids. The last id to read is found
+     * once per list by an index seek.
+     */
+    @Override
+    public List<User> getRecommendedFriends(long userId, int count) {
+        log.debug("A list of {} recommended friends is sent id={}", count, userId);
+        List<User> recommendedUsers = jdbcTemplate.query(SELECT_USERS + " JOIN (SELECT f2.friend_id AS candidate_id, " +
+                "COUNT(*) AS mutual_friends FROM (SELECT f.friend_id, COALESCE((SELECT c.friend_id " +
+                "FROM friendships AS c WHERE c.user_id = f.friend_id ORDER BY c.friend_id " +
+                "OFFSET ? ROWS FETCH NEXT 1 ROW ONLY), ?) AS last_friend_id " +
+                "FROM friendships AS f WHERE f.user_id = ? ORDER BY f.friend_id LIMIT ?) AS f1 " +
+                "JOIN friendships AS f2 ON f2.user_id = f1.friend_id AND f2.friend_id <= f1.last_friend_id " +
+                "WHERE f2.friend_id <> ? AND NOT EXISTS (SELECT 1 FROM friendships AS f3 " +
+                "WHERE f3.user_id = ? AND f3.friend_id = f2.friend_id) " +
+                "GROUP BY f2.friend_id ORDER BY mutual_friends DESC, f2.friend_id LIMIT ?) AS r " +
+                "ON r.candidate_id = u.user_id ORDER BY r.mutual_friends DESC, u.user_id", this::mapRowToUser,
+                FriendRecommendations.MAX_FAN_OUT - 1, Long.MAX_VALUE, userId, FriendRecommendations.MAX_FAN_OUT,
+                userId, userId, count);
+        loadFriends(recommendedUsers.stream().collect(Collectors.toMap(User::getId, Function.identity())));
+        return recommendedUsers;
+    }
+
+    @Override
+    public long getUsersCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    @Override
+    public long getFriendshipsCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friendships", Long.class) / 2;
+    }
+
+    private void loadFriends(Map<Long, User> usersById) {
+        if (usersById.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN (:user_ids)",
+                new MapSqlParameterSource("user_ids", usersById.keySet()),
+                rs -> {
+                    usersById.get(rs.getLong("user_id")).addFriend(rs.getLong("friend_id"));
+                });
+    }
+
+    /**
+     * Inserts the missing friendship rows and bumps the version of every user whose friends list has changed,
+     * so repeating a friendship leaves the users' entity tags as they were.
+     */
+    private void insertFriendships(List<Object[]> rows) {
+        int[] insertedRows = jdbcTemplate.batchUpdate(INSERT_FRIENDSHIP, rows);
+        Set<Long> changedUserIds = new HashSet<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (insertedRows[i] > 0) {
+                changedUserIds.add((Long) rows.get(i)[0]);
+            }
+        }
+        incrementVersions(changedUserIds);
+    }
+
+    private void incrementVersions(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.update("UPDATE users SET version = version + 1 WHERE user_id IN (:user_ids)",
+                new MapSqlParameterSource("user_ids", userIds));
+    }
+
+    private MapSqlParameterSource toParameters(User user) {
+        return new MapSqlParameterSource()
+                .addValue("email", user.getEmail())
+                .addValue("login", user.getLogin())
+                .addValue("name", user.getName())
+                .addValue("birthday", user.getBirthday());
+    }
+
+    private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong("user_id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        user.setBirthday(rs.getObject("birthday", LocalDate.class));
+        user.setVersion(rs.getLong("version"));
+        user.setSetOfFriends(new IdSet());
+        return user;
+    }
+}
@@ -1,28 +1,53 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     List<User> getAllUsers();
 
-    User getUserById(int userId);
+    List<User> getUsers(long afterId, int limit);
+
+    Optional<User> getUserById(long userId);
+
+    List<User> getUsersByIds(List<Long> userIds);
+
+    List<Long> getMissingUserIds(List<Long> userIds);
 
     User addUser(User newUser);
 
-    void addFriend(int userId, int friendId);
+    void addFriend(long userId, long friendId);
+
+    Optional<User> updateUser(User updatedUser);
+
+    Optional<User> updateUser(User updatedUser, long expectedVersion);
+
+    boolean checkIsUserInStorage(long userId);
+
+    boolean deleteFriend(long userId, long friendId);
+
+    List<User> getListOfFriends(long userId);
+
+    List<User> getListOfCommonFriends(long userId, long otherUserId, long afterId, int limit);
+
+    boolean checkAreTheseUsersFriends(long userId, long friendId);
+
+    List<User> getRecommendedFriends(long userId, int count);
 
-    User updateUser(User updatedUser);
+    void addUsers(List<User> newUsers);
 
-    boolean checkIsUserInStorage(User user);
+    void addFriendships(List<Friendship> friendships);
 
-    boolean checkIsUserInStorage(int userId);
+    List<Friendship> deleteFriendships(List<Friendship> friendships);
 
-    void deleteFriend(int userId, int friendId);
+    void forEachUser(Consumer<User> action);
 
-    List<User> getListOfFriends(int userId);
+    long getUsersCount();
 
-    boolean checkAreTheseUsersFriends(Integer userId, Integer friendId);
+    long getFriendshipsCount();
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log split into numbered segment files, every record framed as length, CRC32 and payload.
+ * Appending only copies the record into a memory buffer. The first thread that needs its records durable writes
+ * and forces everything buffered so far while later appends fill a second buffer, so concurrent writers share
+ * one fsync (group commit). A new segment is started on every open and by {@link #rotate()}, so a torn tail can
+ * only be found at the end of a segment that is never appended to again.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private final Path directory;
+    private final boolean fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private FileChannel channel;
+    private long segment;
+    private long appendedPosition;
+    private long durablePosition;
+    private boolean isFlushing;
+    private IOException failure;
+
+    public WriteAheadLog(Path directory, boolean fsync) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.fsync = fsync;
+        List<Long> segments = listSegments(directory);
+        openSegment(segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1);
+    }
+
+    public void append(byte[] record) {
+        lock.lock();
+        try {
+            checkNotFailed();
+            if (pending.remaining() < HEADER_SIZE + record.length) {
+                pending = grow(pending, HEADER_SIZE + record.length);
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(record);
+            pending.putInt(record.length).putInt((int) checksum.getValue()).put(record);
+            appendedPosition += HEADER_SIZE + record.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void sync() {
+        lock.lock();
+        try {
+            long position = appendedPosition;
+            while (durablePosition < position) {
+                checkNotFailed();
+                if (isFlushing) {
+                    flushed.awaitUninterruptibly();
+                } else {
+                    flushPending();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes everything appended so far durable in the current segment and starts the next one.
+     *
+     * @return the number of the new segment
+     */
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            while (isFlushing) {
+                flushed.awaitUninterruptibly();
+            }
+            checkNotFailed();
+            writePending(channel, pending);
+            durablePosition = appendedPosition;
+            channel.close();
+            openSegment(segment + 1);
+            return segment;
+        } finally {
+            flushed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    public void deleteSegmentsBefore(long firstKeptSegment) throws IOException {
+        for (long oldSegment : listSegments(directory)) {
+            if (oldSegment < firstKeptSegment) {
+                Files.delete(segmentPath(directory, oldSegment));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            while (isFlushing) {
+                flushed.awaitUninterruptibly();
+            }
+            if (!channel.isOpen()) {
+                return;
+            }
+            if (failure == null) {
+                writePending(channel, pending);
+            }
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Feeds every intact record of the segments starting from {@code fromSegment} to {@code handler} in log order.
+     * Reading a segment stops at the first torn or corrupted record.
+     *
+     * @return the number of records replayed
+     */
+    public static long replay(Path directory, long fromSegment, Consumer<ByteBuffer> handler) throws IOException {
+        long records = 0;
+        for (long segment : listSegments(directory)) {
+            if (segment < fromSegment) {
+                continue;
+            }
+            try (FileChannel segmentChannel = FileChannel.open(segmentPath(directory, segment),
+                    StandardOpenOption.READ)) {
+                ByteBuffer buffer = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size());
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    int length = buffer.getInt();
+                    int expectedChecksum = buffer.getInt();
+                    if (length < 0 || length > buffer.remaining()) {
+                        log.warn("The write-ahead log segment {} ends with a torn record", segment);
+                        break;
+                    }
+                    ByteBuffer record = buffer.slice();
+                    record.limit(length);
+                    CRC32 checksum = new CRC32();
+                    checksum.update(record.duplicate());
+                    if ((int) checksum.getValue() != expectedChecksum) {
+                        log.warn("The write-ahead log segment {} has a corrupted record", segment);
+                        break;
+                    }
+                    handler.accept(record);
+                    buffer.position(buffer.position() + length);
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    private void flushPending() {
+        ByteBuffer batch = pending;
+        pending = spare;
+        long batchEnd = appendedPosition;
+        isFlushing = true;
+        lock.unlock();
+        IOException writeFailure = null;
+        try {
+            writePending(channel, batch);
+        } catch (IOException e) {
+            writeFailure = e;
+        } finally {
+            lock.lock();
+            spare = batch;
+            isFlushing = false;
+            if (writeFailure == null) {
+                durablePosition = batchEnd;
+            } else {
+                log.error("Failed to write the write-ahead log segment {}", segment, writeFailure);
+                failure = writeFailure;
+            }
+            flushed.signalAll();
+        }
+    }
+
+    private void writePending(FileChannel target, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+        if (fsync) {
+            target.force(false);
+        }
+    }
+
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("The write-ahead log is not writable", failure);
+        }
+    }
+
+    private void openSegment(long newSegment) throws IOException {
+        channel = FileChannel.open(segmentPath(directory, newSegment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segment = newSegment;
+        log.info("Writing the write-ahead log segment {}", newSegment);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int required) {
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < required) {
+            capacity <<= 1;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    private static Path segmentPath(Path directory, long segment) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private static List<Long> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
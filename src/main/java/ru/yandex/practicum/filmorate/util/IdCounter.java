@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing map from entity id to a positive count, used to tally graph neighbours without boxing.
+ * Not thread-safe: every traversal task fills its own counter and the results are merged with {@link #addAll}.
+ */
+public class IdCounter {
+    private static final int MIN_CAPACITY = 16;
+    private static final float MAX_LOAD_FACTOR = 0.5f;
+    private long[] ids;
+    private int[] counts;
+    private int mask;
+    private int size;
+
+    public IdCounter() {
+        this(0);
+    }
+
+    public IdCounter(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        ids = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public void increment(long id) {
+        add(id, 1);
+    }
+
+    public void add(long id, int delta) {
+        int index = indexOf(id);
+        while (counts[index] != 0) {
+            if (ids[index] == id) {
+                counts[index] += delta;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        ids[index] = id;
+        counts[index] = delta;
+        size++;
+        if (size > (mask + 1) * MAX_LOAD_FACTOR) {
+            rehash((mask + 1) << 1);
+        }
+    }
+
+    public int get(long id) {
+        int index = indexOf(id);
+        while (counts[index] != 0) {
+            if (ids[index] == id) {
+                return counts[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addAll(IdCounter other) {
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+                add(other.ids[i], other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} accepted ids with the highest counts, ties broken by the smaller id. Selection
+     * goes through a bounded min-heap, so it costs O(n log limit) and allocates only the heap.
+     */
+    public long[] top(int limit, LongPredicate filter) {
+        int capacity = Math.min(limit, size);
+        long[] heapIds = new long[capacity];
+        int[] heapCounts = new int[capacity];
+        int heapSize = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 || !filter.test(ids[i])) {
+                continue;
+            }
+            if (heapSize < capacity) {
+                heapIds[heapSize] = ids[i];
+                heapCounts[heapSize] = counts[i];
+                siftUp(heapIds, heapCounts, heapSize++);
+            } else if (capacity > 0 && ranksHigher(ids[i], counts[i], heapIds[0], heapCounts[0])) {
+                heapIds[0] = ids[i];
+                heapCounts[0] = counts[i];
+                siftDown(heapIds, heapCounts, heapSize);
+            }
+        }
+        long[] top = new long[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            top[i] = heapIds[0];
+            heapIds[0] = heapIds[i];
+            heapCounts[0] = heapCounts[i];
+            siftDown(heapIds, heapCounts, i);
+        }
+        return top;
+    }
+
+    private static boolean ranksHigher(long id, int count, long otherId, int otherCount) {
+        return count > otherCount || count == otherCount && id < otherId;
+    }
+
+    private static void siftUp(long[] heapIds, int[] heapCounts, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksHigher(heapIds[parent], heapCounts[parent], heapIds[index], heapCounts[index])) {
+                return;
+            }
+            swap(heapIds, heapCounts, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heapIds, int[] heapCounts, int heapSize) {
+        int index = 0;
+        while (true) {
+            int lowest = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < heapSize; child++) {
+                if (ranksHigher(heapIds[lowest], heapCounts[lowest], heapIds[child], heapCounts[child])) {
+                    lowest = child;
+                }
+            }
+            if (lowest == index) {
+                return;
+            }
+            swap(heapIds, heapCounts, index, lowest);
+            index = lowest;
+        }
+    }
+
+    private static void swap(long[] heapIds, int[] heapCounts, int i, int j) {
+        long id = heapIds[i];
+        heapIds[i] = heapIds[j];
+        heapIds[j] = id;
+        int count = heapCounts[i];
+        heapCounts[i] = heapCounts[j];
+        heapCounts[j] = count;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldIds = ids;
+        int[] oldCounts = counts;
+        ids = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldCounts.length; i++) {
+            if (oldCounts[i] != 0) {
+                int index = indexOf(oldIds[i]);
+                while (counts[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                ids[index] = oldIds[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    private int indexOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
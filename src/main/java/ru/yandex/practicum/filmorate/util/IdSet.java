@@ -0,0 +1,287 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * Open-addressing set of entity ids with linear probing. Ids are kept in a primitive {@code int[]} while they
+ * fit into 32 bits and the table is widened to {@code long[]} on the first id that does not, so a typical
+ * like or friendship costs 4-11 bytes instead of a boxed {@code Long} plus a hash map node.
+ * Serialized to JSON as a plain array of numbers. All operations are guarded by the set's monitor.
+ */
+@JsonSerialize(using = IdSet.Serializer.class)
+@JsonDeserialize(using = IdSet.Deserializer.class)
+public class IdSet {
+    private static final long EMPTY = 0L;
+    private static final int MIN_CAPACITY = 4;
+    private static final float MAX_LOAD_FACTOR = 0.75f;
+    private int[] narrowSlots;
+    private long[] wideSlots;
+    private int mask;
+    private int size;
+    private boolean containsEmptyId;
+
+    public IdSet() {
+        this(0);
+    }
+
+    public IdSet(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        narrowSlots = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    public static IdSet of(long... ids) {
+        IdSet set = new IdSet(ids.length);
+        for (long id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    public synchronized boolean add(long id) {
+        if (id == EMPTY) {
+            if (containsEmptyId) {
+                return false;
+            }
+            containsEmptyId = true;
+            size++;
+            return true;
+        }
+        if (narrowSlots != null && id != (int) id) {
+            widen();
+        }
+        int index = indexOf(id);
+        long slot;
+        while ((slot = slotAt(index)) != EMPTY) {
+            if (slot == id) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        setSlot(index, id);
+        size++;
+        if (size > (mask + 1) * MAX_LOAD_FACTOR) {
+            rehash((mask + 1) << 1);
+        }
+        return true;
+    }
+
+    public synchronized boolean remove(long id) {
+        if (id == EMPTY) {
+            if (!containsEmptyId) {
+                return false;
+            }
+            containsEmptyId = false;
+            size--;
+            return true;
+        }
+        int index = indexOf(id);
+        long slot;
+        while ((slot = slotAt(index)) != id) {
+            if (slot == EMPTY) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while ((slot = slotAt(next)) != EMPTY) {
+            int home = indexOf(slot);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                setSlot(gap, slot);
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        setSlot(gap, EMPTY);
+        size--;
+        return true;
+    }
+
+    public synchronized boolean contains(long id) {
+        if (id == EMPTY) {
+            return containsEmptyId;
+        }
+        if (narrowSlots != null && id != (int) id) {
+            return false;
+        }
+        int index = indexOf(id);
+        long slot;
+        while ((slot = slotAt(index)) != EMPTY) {
+            if (slot == id) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public long[] toArray() {
+        return toArray(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns at most {@code maxSize} ids in table order, which is unrelated to the ids' numeric order.
+     */
+    public synchronized long[] toArray(int maxSize) {
+        long[] ids = new long[Math.min(size, maxSize)];
+        int position = 0;
+        if (containsEmptyId && position < ids.length) {
+            ids[position++] = EMPTY;
+        }
+        for (int index = 0; index <= mask && position < ids.length; index++) {
+            long slot = slotAt(index);
+            if (slot != EMPTY) {
+                ids[position++] = slot;
+            }
+        }
+        return ids;
+    }
+
+    public long[] toSortedArray() {
+        long[] ids = toArray();
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    public LongStream stream() {
+        return Arrays.stream(toArray());
+    }
+
+    /**
+     * Returns the ids present in both sets in ascending order. The smaller set is copied and probed
+     * against the larger one, so only one monitor is held at a time.
+     */
+    public long[] intersect(IdSet other) {
+        IdSet smaller = this.size() <= other.size() ? this : other;
+        IdSet larger = smaller == this ? other : this;
+        long[] common = larger.retainContained(smaller.toArray());
+        Arrays.sort(common);
+        return common;
+    }
+
+    private synchronized long[] retainContained(long[] candidates) {
+        int count = 0;
+        for (long candidate : candidates) {
+            if (contains(candidate)) {
+                candidates[count++] = candidate;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    private long slotAt(int index) {
+        return narrowSlots != null ? narrowSlots[index] : wideSlots[index];
+    }
+
+    private void setSlot(int index, long id) {
+        if (narrowSlots != null) {
+            narrowSlots[index] = (int) id;
+        } else {
+            wideSlots[index] = id;
+        }
+    }
+
+    private void widen() {
+        wideSlots = new long[narrowSlots.length];
+        for (int index = 0; index < narrowSlots.length; index++) {
+            wideSlots[index] = narrowSlots[index];
+        }
+        narrowSlots = null;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] ids = toArray();
+        if (narrowSlots != null) {
+            narrowSlots = new int[newCapacity];
+        } else {
+            wideSlots = new long[newCapacity];
+        }
+        mask = newCapacity - 1;
+        for (long id : ids) {
+            if (id != EMPTY) {
+                int index = indexOf(id);
+                while (slotAt(index) != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                setSlot(index, id);
+            }
+        }
+    }
+
+    private int indexOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdSet)) {
+            return false;
+        }
+        return Arrays.equals(toSortedArray(), ((IdSet) o).toSortedArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toSortedArray());
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toSortedArray());
+    }
+
+    public static class Serializer extends JsonSerializer<IdSet> {
+        @Override
+        public void serialize(IdSet value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            long[] ids = value.toArray();
+            generator.writeArray(ids, 0, ids.length);
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<IdSet> {
+        @Override
+        public IdSet deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!parser.isExpectedStartArrayToken()) {
+                return (IdSet) context.handleUnexpectedToken(IdSet.class, parser);
+            }
+            IdSet set = new IdSet();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                set.add(parser.getLongValue());
+            }
+            return set;
+        }
+    }
+}
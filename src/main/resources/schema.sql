@@ -0,0 +1,36 @@
+CREATE TABLE IF NOT EXISTS films (
+    film_id      BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE         NOT NULL,
+    duration     BIGINT       NOT NULL,
+    rate         INT          NOT NULL DEFAULT 0,
+    version      BIGINT       NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS films_release_date_idx ON films (release_date);
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255),
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE         NOT NULL,
+    version  BIGINT       NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id BIGINT NOT NULL REFERENCES films (film_id),
+    user_id BIGINT NOT NULL REFERENCES users (user_id),
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_id_idx ON likes (user_id);
+
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (user_id),
+    friend_id BIGINT NOT NULL REFERENCES users (user_id),
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS friendships_friend_id_idx ON friendships (friend_id);
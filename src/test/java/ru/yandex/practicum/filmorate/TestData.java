@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Фабрики фильмов и пользователей для тестов. Возвращаемые объекты проходят проверки контроллеров,
+ * а поля, которые тест не задал явно, заполнены одинаковыми значениями.
+ */
+public final class TestData {
+    public static final LocalDate RELEASE_DATE = LocalDate.of(2000, 1, 1);
+    public static final LocalDate BIRTHDAY = LocalDate.of(1990, 1, 1);
+
+    private TestData() {
+    }
+
+    public static Film newFilm() {
+        return newFilm(RELEASE_DATE);
+    }
+
+    public static Film newFilm(LocalDate releaseDate) {
+        Film film = new Film();
+        film.setName("film");
+        film.setDescription("description");
+        film.setReleaseDate(releaseDate);
+        film.setDuration(100);
+        return film;
+    }
+
+    public static Film newFilm(String name) {
+        Film film = newFilm();
+        film.setName(name);
+        return film;
+    }
+
+    public static Film newFilm(String name, String description) {
+        Film film = newFilm(name);
+        film.setDescription(description);
+        return film;
+    }
+
+    public static Film newFilm(long id, String name, String description) {
+        Film film = newFilm(name, description);
+        film.setId(id);
+        return film;
+    }
+
+    public static User newUser() {
+        return newUser("user");
+    }
+
+    public static User newUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@example.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(BIRTHDAY);
+        return user;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class BatchEndpointsTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void likesAndFriendsAreChangedInBatches() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                            .content(String.format("{\"email\":\"u%1$s@mail.ru\",\"login\":\"u%1$s\",\"name\":\"u\"," +
+                                    "\"birthday\":\"1990-01-01\"}", i)))
+                    .andExpect(status().isOk());
+            mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"name\":\"film\",\"description\":\"d\",\"duration\":90," +
+                                    "\"releaseDate\":\"2000-01-01\"}"))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/films").param("ids", "3,1,3"))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(1));
+        mockMvc.perform(get("/films").param("ids", "3,1").param("stream", "true"))
+                .andExpect(jsonPath("$", hasSize(2)));
+        mockMvc.perform(get("/users").param("ids", "2,7,8"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(put("/films/likes").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"filmId\":2,\"userId\":1},{\"filmId\":2,\"userId\":2},{\"filmId\":3,\"userId\":1}]"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/films/likes").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"filmId\":1,\"userId\":1},{\"filmId\":1,\"userId\":9}]"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/films/likes").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"filmId\":0,\"userId\":1}]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(put("/films/likes").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"filmId\":2,"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/users/friends").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userId\":1}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/films/likes").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"filmId\":3,\"userId\":1},{\"filmId\":3,\"userId\":2}]"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].likesCount").value(2))
+                .andExpect(jsonPath("$[0].setOfLikes").doesNotExist())
+                .andExpect(jsonPath("$[1].id").value(1));
+        mockMvc.perform(get("/films/2").param("expand", "likes"))
+                .andExpect(jsonPath("$.setOfLikes", hasSize(2)));
+        mockMvc.perform(get("/films/2").param("expand", "friends"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(put("/users/friends").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"userId\":1,\"friendId\":2},{\"userId\":1,\"friendId\":3}]"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/users/friends").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"userId\":3,\"friendId\":1}]"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/1/friends"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].friendsCount").value(1));
+        mockMvc.perform(get("/users").param("ids", "1").param("expand", "friends"))
+                .andExpect(jsonPath("$[0].setOfFriends[0]").value(2));
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class BulkEndpointsTest {
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void importsValidFilmsAndReportsRejectedOnes() throws Exception {
+        String films = "{\"name\":\"first\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n" +
+                "{\"name\":\"\",\"description\":\"d\",\"releaseDate\":\"2000-01-01\",\"duration\":90}\n" +
+                "{\"name\":\"old\",\"description\":\"d\",\"releaseDate\":\"1800-01-01\",\"duration\":90}\n" +
+                "{\"name\":\"second\",\"description\":\"d\",\"releaseDate\":\"2001-01-01\",\"duration\":\"long\"}\n" +
+                "{\"name\":\"third\",\"description\":\"d\",\"releaseDate\":\"2002-01-01\",\"duration\":95}\n";
+
+        mockMvc.perform(post("/films/bulk").contentType(NDJSON).content(films))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[1].index").value(2))
+                .andExpect(jsonPath("$.errors[2].index").value(3));
+
+        mockMvc.perform(post("/users/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"email\":\"a@mail.ru\",\"login\":\"a\",\"name\":\"a\",\"birthday\":\"1990-01-01\"}]"))
+                .andExpect(jsonPath("$.imported").value(1));
+        mockMvc.perform(post("/films/likes/bulk").contentType(NDJSON)
+                        .content("{\"filmId\":2,\"userId\":1}\n{\"filmId\":2,\"userId\":7}\n"))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("User id=7 not found"));
+
+        MvcResult export = mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String exported = mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(2, exported.lines().count());
+        assertTrue(exported.contains("\"name\":\"third\""));
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class ConditionalRequestsTest {
+    private static final String FILM = "{\"id\":1,\"name\":\"%s\",\"description\":\"d\",\"duration\":90," +
+            "\"releaseDate\":\"2000-01-01\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void unchangedFilmsAreNotSentAgainAndStaleUpdatesAreRejected() throws Exception {
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"u@mail.ru\",\"login\":\"u\",\"name\":\"u\"," +
+                                "\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format(FILM, "film")))
+                .andExpect(status().isOk());
+
+        String filmTag = eTag("/films/1");
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, filmTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        assertNotEquals(filmTag, mockMvc.perform(get("/films/1").param("expand", "likes"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG));
+        String popularTag = eTag("/films/popular");
+        mockMvc.perform(get("/films/popular").header(HttpHeaders.IF_NONE_MATCH, popularTag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(put("/films/1/like/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, filmTag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").header(HttpHeaders.IF_NONE_MATCH, popularTag))
+                .andExpect(status().isOk());
+
+        String likedTag = eTag("/films/1");
+        mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON).content(String.format(FILM, "stale"))
+                        .header(HttpHeaders.IF_MATCH, filmTag))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON).content(String.format(FILM, "new"))
+                        .header(HttpHeaders.IF_MATCH, "\"foreign\""))
+                .andExpect(status().isPreconditionFailed());
+        String updatedTag = mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format(FILM, "new"))
+                        .header(HttpHeaders.IF_MATCH, likedTag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, updatedTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON).content(String.format(FILM, "any")))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    private String eTag(String url) throws Exception {
+        return mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
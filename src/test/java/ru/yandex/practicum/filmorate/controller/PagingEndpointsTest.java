@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext
+class PagingEndpointsTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void usersArePagedByIdCursor() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                            .content(String.format("{\"email\":\"u%1$s@mail.ru\",\"login\":\"u%1$s\",\"name\":\"u\"," +
+                                    "\"birthday\":\"1990-01-01\"}", i)))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/users"))
+                .andExpect(jsonPath("$", hasSize(5)))
+                .andExpect(header().doesNotExist(CursorPages.NEXT_CURSOR_HEADER));
+        mockMvc.perform(get("/users").param("limit", "2"))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(header().string(CursorPages.NEXT_CURSOR_HEADER, "2"));
+        mockMvc.perform(get("/users").param("after", "4").param("limit", "2"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(5))
+                .andExpect(header().doesNotExist(CursorPages.NEXT_CURSOR_HEADER));
+        mockMvc.perform(get("/users").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        for (int i = 3; i <= 5; i++) {
+            mockMvc.perform(put("/users/1/friends/" + i)).andExpect(status().isOk());
+            mockMvc.perform(put("/users/2/friends/" + i)).andExpect(status().isOk());
+        }
+        mockMvc.perform(get("/users/1/friends/common/2"))
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(header().doesNotExist(CursorPages.NEXT_CURSOR_HEADER));
+        mockMvc.perform(get("/users/1/friends/common/2").param("after", "3").param("limit", "1"))
+                .andExpect(jsonPath("$[0].id").value(4))
+                .andExpect(header().string(CursorPages.NEXT_CURSOR_HEADER, "4"));
+
+        MvcResult stream = mockMvc.perform(get("/users").param("stream", "true")).andReturn();
+        String body = mockMvc.perform(asyncDispatch(stream))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(5, body.lines().count());
+    }
+
+    @Test
+    void filmsAreFilteredByReleaseYear() throws Exception {
+        String[] releaseDates = {"1999-03-01", "2000-01-01", "1999-12-31"};
+        for (String releaseDate : releaseDates) {
+            mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+                            .content(String.format("{\"name\":\"film\",\"description\":\"d\",\"duration\":90," +
+                                    "\"releaseDate\":\"%s\"}", releaseDate)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.releaseDate").value(releaseDate));
+        }
+
+        mockMvc.perform(get("/films").param("year", "1999").param("limit", "1"))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(header().string(CursorPages.NEXT_CURSOR_HEADER, "1"));
+        mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"name\":\"film\",\"description\":\"d\",\"duration\":90," +
+                                "\"releaseDate\":\"2000-06-01\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films").param("year", "1999"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(3));
+        mockMvc.perform(get("/films").param("year", "2000"))
+                .andExpect(jsonPath("$", hasSize(2)));
+        mockMvc.perform(get("/films").param("year", "1890"))
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/films").param("year", "nineties"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular").param("from", "2000-13-01"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films").param("after", "x"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSummary;
+import ru.yandex.practicum.filmorate.model.FilmWithLikes;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+
+class SummaryJsonCacheTest {
+
+    @Test
+    void summariesAreSerializedOnceUntilTheyChange() throws Exception {
+        SummaryJsonCache cache = new SummaryJsonCache(100);
+        ObjectMapper cachingMapper = newObjectMapper().registerModule(cache);
+        ObjectMapper plainMapper = newObjectMapper();
+        Film film = newFilm(1, "film 1", "description");
+        Film otherFilm = newFilm(2, "film 2", "description");
+        film.generateSetOfLikes();
+        otherFilm.generateSetOfLikes();
+        List<FilmSummary> summaries = List.of(new FilmSummary(film), new FilmSummary(otherFilm));
+
+        assertEquals(plainMapper.writeValueAsString(summaries), cachingMapper.writeValueAsString(summaries));
+        assertEquals(plainMapper.writeValueAsString(summaries), cachingMapper.writeValueAsString(summaries));
+        film.addLike(7);
+        String changed = cachingMapper.writeValueAsString(new FilmSummary(film));
+        cachingMapper.writeValueAsString(new FilmWithLikes(film));
+
+        assertEquals(plainMapper.writeValueAsString(new FilmSummary(film)), changed);
+        assertEquals(2, cache.getSummariesCache().stats().hitCount());
+        assertEquals(3, cache.getSummariesCache().stats().missCount());
+    }
+
+    private static ObjectMapper newObjectMapper() {
+        return new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.OverloadedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+
+class AsyncLikeWriterTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final TrendingFilms trendingFilms = new TrendingFilms(List.of(Duration.ofHours(24)), 10,
+            Duration.ofSeconds(15));
+    private AsyncLikeWriter likeWriter;
+
+    @AfterEach
+    void stopWriter() throws InterruptedException {
+        likeWriter.stop();
+    }
+
+    @Test
+    void concurrentLikesAreVisibleOnceSubmitted() throws Exception {
+        likeWriter = newWriter(1024, true);
+        likeWriter.start();
+        Film film = filmStorage.addFilm(newFilm());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> submits = new ArrayList<>();
+            for (long userId = 1; userId <= 1000; userId++) {
+                long likingUserId = userId;
+                submits.add(executor.submit(() -> likeWriter.addLike(film.getId(), likingUserId)));
+            }
+            for (Future<?> submit : submits) {
+                submit.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1000, filmStorage.getFilmById(film.getId()).orElseThrow().getSetOfLikes().size());
+        assertEquals(1000, filmStorage.getLikesCount());
+    }
+
+    @Test
+    void lastOperationOfUserWins() {
+        likeWriter = newWriter(1024, true);
+        likeWriter.start();
+        Film film = filmStorage.addFilm(newFilm());
+        likeWriter.addLike(film.getId(), 1);
+        likeWriter.deleteLike(film.getId(), 1);
+        likeWriter.addLike(film.getId(), 2);
+
+        Film likedFilm = filmStorage.getFilmById(film.getId()).orElseThrow();
+        assertEquals(1, likedFilm.getSetOfLikes().size());
+        assertTrue(likedFilm.getSetOfLikes().contains(2));
+    }
+
+    @Test
+    void onlyAppliedChangesAreTrending() {
+        likeWriter = newWriter(1024, true);
+        likeWriter.start();
+        Film film = filmStorage.addFilm(newFilm());
+        Film otherFilm = filmStorage.addFilm(newFilm());
+        likeWriter.addLike(film.getId(), 1);
+        likeWriter.addLike(film.getId(), 1);
+        likeWriter.addLikes(List.of(new Like(film.getId(), 1), new Like(otherFilm.getId(), 1),
+                new Like(otherFilm.getId(), 2)));
+        likeWriter.deleteLike(otherFilm.getId(), 3);
+
+        assertArrayEquals(new long[]{otherFilm.getId(), film.getId()},
+                trendingFilms.getTopFilmIds(Duration.ofHours(24), 10));
+    }
+
+    @Test
+    void fullQueueRejectsLikes() {
+        likeWriter = newWriter(1, false);
+        likeWriter.addLike(1, 1);
+        assertThrows(OverloadedException.class, () -> likeWriter.addLike(1, 2));
+    }
+
+    @Test
+    void batchThatDoesNotFitIsRejectedWhole() throws InterruptedException {
+        likeWriter = newWriter(3, false);
+        Film film = filmStorage.addFilm(newFilm());
+        likeWriter.addLikes(List.of(new Like(film.getId(), 1), new Like(film.getId(), 2)));
+
+        assertThrows(OverloadedException.class,
+                () -> likeWriter.addLikes(List.of(new Like(film.getId(), 3), new Like(film.getId(), 4))));
+        likeWriter.start();
+        likeWriter.stop();
+
+        assertEquals(IdSet.of(1, 2), filmStorage.getFilmById(film.getId()).orElseThrow().getSetOfLikes());
+    }
+
+    @Test
+    void errorFailsItsBatchAndKeepsTheWriterRunning() {
+        AtomicBoolean isFailing = new AtomicBoolean(true);
+        InMemoryFilmStorage failingStorage = new InMemoryFilmStorage() {
+            @Override
+            public List<Like> addLikes(List<Like> likes) {
+                if (isFailing.getAndSet(false)) {
+                    throw new OutOfMemoryError("Simulated");
+                }
+                return super.addLikes(likes);
+            }
+        };
+        likeWriter = new AsyncLikeWriter(failingStorage, trendingFilms, 16, 64, Duration.ofMillis(5),
+                Duration.ofMillis(10), true);
+        likeWriter.start();
+        Film film = failingStorage.addFilm(newFilm());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThrows(CompletionException.class, () -> likeWriter.addLike(film.getId(), 1));
+            likeWriter.addLike(film.getId(), 2);
+        });
+        assertEquals(IdSet.of(2), failingStorage.getFilmById(film.getId()).orElseThrow().getSetOfLikes());
+    }
+
+    private AsyncLikeWriter newWriter(int queueCapacity, boolean readYourWrites) {
+        return new AsyncLikeWriter(filmStorage, trendingFilms, queueCapacity, 64, Duration.ofMillis(5),
+                Duration.ofMillis(10), readYourWrites);
+    }
+}
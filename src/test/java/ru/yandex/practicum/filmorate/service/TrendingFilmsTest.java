@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TrendingFilmsTest {
+    private final MutableClock clock = new MutableClock();
+    private final TrendingFilms trendingFilms = new TrendingFilms(clock, List.of(Duration.ofHours(24)), 2,
+            Duration.ofSeconds(15));
+
+    @Test
+    void likesLeaveTheWindowAsTimePasses() {
+        like(1, 5);
+        passTime(Duration.ofHours(2));
+        like(2, 3);
+        passTime(Duration.ofMinutes(30));
+        like(3, 1);
+        trendingFilms.refresh();
+
+        assertArrayEquals(new long[]{1, 2}, trendingFilms.getTopFilmIds(Duration.ofHours(24), 2));
+        assertArrayEquals(new long[]{1, 2, 3}, trendingFilms.getTopFilmIds(Duration.ofHours(24), 5));
+        assertArrayEquals(new long[]{2, 3}, trendingFilms.getTopFilmIds(Duration.ofHours(1), 5));
+        assertArrayEquals(new long[]{3}, trendingFilms.getTopFilmIds(Duration.ofMinutes(10), 5));
+
+        passTime(Duration.ofHours(23));
+
+        assertArrayEquals(new long[]{2, 3}, trendingFilms.getTopFilmIds(Duration.ofHours(24), 2));
+    }
+
+    @Test
+    void unlikesLowerTheScoreButNotBelowZero() {
+        like(1, 2);
+        like(2, 3);
+        trendingFilms.recordUnlike(2);
+        trendingFilms.recordUnlike(2);
+        passTime(Duration.ofMinutes(1));
+        trendingFilms.recordUnlike(1);
+        trendingFilms.recordUnlike(1);
+        trendingFilms.recordUnlike(1);
+        trendingFilms.refresh();
+
+        assertArrayEquals(new long[]{2}, trendingFilms.getTopFilmIds(Duration.ofHours(24), 2));
+    }
+
+    @Test
+    void unsupportedWindowsAreRejected() {
+        assertThrows(ValidationException.class, () -> trendingFilms.getTopFilmIds(Duration.ofSeconds(90), 10));
+        assertThrows(ValidationException.class, () -> trendingFilms.getTopFilmIds(Duration.ofMinutes(90), 10));
+        assertThrows(ValidationException.class, () -> trendingFilms.getTopFilmIds(Duration.ofDays(8), 10));
+    }
+
+    @Test
+    void likesAreNotLostWhenTheRefreshDropsCounters() throws Exception {
+        int threads = 4;
+        int rounds = 100_000;
+        AtomicInteger lostLikes = new AtomicInteger();
+        AtomicBoolean isDone = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            Future<?> refresher = executor.submit(() -> {
+                while (!isDone.get()) {
+                    trendingFilms.refresh();
+                }
+            });
+            List<Future<?>> writers = new ArrayList<>();
+            for (long filmId = 1; filmId <= threads; filmId++) {
+                long writerFilmId = filmId;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < rounds; i++) {
+                        trendingFilms.recordLike(writerFilmId);
+                        long[] topFilmIds = trendingFilms.getTopFilmIds(Duration.ofHours(1), threads);
+                        if (Arrays.stream(topFilmIds).noneMatch(id -> id == writerFilmId)) {
+                            lostLikes.incrementAndGet();
+                        }
+                        trendingFilms.recordUnlike(writerFilmId);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+            isDone.set(true);
+            refresher.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, lostLikes.get());
+    }
+
+    @Test
+    void refreshIntervalsLongerThanTheSpareBucketsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TrendingFilms(clock, List.of(Duration.ofHours(24)),
+                2, Duration.ofMinutes(2)));
+        assertThrows(IllegalArgumentException.class, () -> new TrendingFilms(clock, List.of(Duration.ofHours(24)),
+                2, Duration.ZERO));
+    }
+
+    private void passTime(Duration duration) {
+        for (long minute = 0; minute < duration.toMinutes(); minute++) {
+            clock.advance(Duration.ofMinutes(1));
+            trendingFilms.refresh();
+        }
+    }
+
+    private void like(long filmId, int likes) {
+        for (int i = 0; i < likes; i++) {
+            trendingFilms.recordLike(filmId);
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2022-08-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class CachingStorageTest {
+
+    @Test
+    void filmReadsAreServedFromCacheUntilLikeInvalidatesThem() {
+        CachingFilmStorage filmStorage = new CachingFilmStorage(new InMemoryFilmStorage(), true, 100, 10, 100,
+                Duration.ofMinutes(5));
+        Film film = filmStorage.addFilm(newFilm());
+        Film otherFilm = filmStorage.addFilm(newFilm());
+
+        filmStorage.getFilmById(film.getId());
+        filmStorage.getFilmById(film.getId());
+        List<Film> popularFilms = filmStorage.getPopularFilms(2);
+        assertSame(popularFilms, filmStorage.getPopularFilms(2));
+
+        filmStorage.addLike(otherFilm.getId(), 1);
+
+        assertEquals(List.of(otherFilm, film), filmStorage.getPopularFilms(2));
+        assertEquals(1, filmStorage.getFilmsCache().stats().hitCount());
+        assertEquals(1, filmStorage.getFilmsCache().stats().missCount());
+        assertEquals(1, filmStorage.getPopularFilmsCache().stats().hitCount());
+        assertTrue(filmStorage.checkIsFilmInStorage(otherFilm.getId()));
+    }
+
+    @Test
+    void recommendationsAreRecomputedAfterOwnLike() {
+        CachingFilmStorage filmStorage = new CachingFilmStorage(new InMemoryFilmStorage(), true, 100, 10, 100,
+                Duration.ofMinutes(5));
+        Film sharedFilm = filmStorage.addFilm(newFilm());
+        Film firstFilm = filmStorage.addFilm(newFilm());
+        Film secondFilm = filmStorage.addFilm(newFilm());
+        filmStorage.addLikes(List.of(new Like(sharedFilm.getId(), 1), new Like(sharedFilm.getId(), 2),
+                new Like(firstFilm.getId(), 2), new Like(secondFilm.getId(), 2)));
+
+        assertEquals(List.of(firstFilm, secondFilm), filmStorage.getRecommendedFilms(1, 2));
+        assertEquals(List.of(firstFilm), filmStorage.getRecommendedFilms(1, 1));
+        filmStorage.addLike(firstFilm.getId(), 1);
+
+        assertEquals(List.of(secondFilm), filmStorage.getRecommendedFilms(1, 2));
+        assertEquals(1, filmStorage.getRecommendedFilmIdsCache().stats().hitCount());
+    }
+
+    @Test
+    void recommendationsAreCachedWhileFilmCacheIsOff() {
+        CachingFilmStorage filmStorage = new CachingFilmStorage(new InMemoryFilmStorage(), false, 100, 10, 100,
+                Duration.ofMinutes(5));
+        Film sharedFilm = filmStorage.addFilm(newFilm());
+        Film firstFilm = filmStorage.addFilm(newFilm());
+        filmStorage.addLikes(List.of(new Like(sharedFilm.getId(), 1), new Like(sharedFilm.getId(), 2),
+                new Like(firstFilm.getId(), 2)));
+
+        assertEquals(List.of(firstFilm), filmStorage.getRecommendedFilms(1, 2));
+        assertEquals(List.of(firstFilm), filmStorage.getRecommendedFilms(1, 2));
+        filmStorage.getFilmById(firstFilm.getId());
+        filmStorage.getPopularFilms(2);
+
+        assertEquals(1, filmStorage.getRecommendedFilmIdsCache().stats().hitCount());
+        assertEquals(0, filmStorage.getFilmsCache().estimatedSize());
+        assertEquals(0, filmStorage.getPopularFilmsCache().estimatedSize());
+    }
+
+    @Test
+    void recommendationsAreRecomputedAfterLikeOfSharedFilm() {
+        CachingFilmStorage filmStorage = new CachingFilmStorage(new InMemoryFilmStorage(), true, 100, 10, 100,
+                Duration.ofMinutes(5));
+        Film sharedFilm = filmStorage.addFilm(newFilm());
+        Film firstFilm = filmStorage.addFilm(newFilm());
+        Film secondFilm = filmStorage.addFilm(newFilm());
+        filmStorage.addLikes(List.of(new Like(sharedFilm.getId(), 1), new Like(sharedFilm.getId(), 2),
+                new Like(firstFilm.getId(), 2), new Like(secondFilm.getId(), 3)));
+        assertEquals(List.of(firstFilm), filmStorage.getRecommendedFilms(1, 2));
+
+        filmStorage.addLike(sharedFilm.getId(), 3);
+
+        assertEquals(List.of(firstFilm, secondFilm), filmStorage.getRecommendedFilms(1, 2));
+    }
+
+    @Test
+    void friendshipChangesInvalidateBothUsers() {
+        CachingUserStorage userStorage = new CachingUserStorage(new InMemoryUserStorage(), 100);
+        User user = userStorage.addUser(newUser());
+        User friend = userStorage.addUser(newUser());
+        userStorage.getUserById(user.getId());
+        userStorage.getUserById(friend.getId());
+
+        userStorage.addFriend(user.getId(), friend.getId());
+
+        assertEquals(0, userStorage.getUsersCache().estimatedSize());
+        assertTrue(userStorage.getUserById(friend.getId()).orElseThrow().getSetOfFriends().contains(user.getId()));
+        assertTrue(userStorage.checkAreTheseUsersFriends(friend.getId(), user.getId()));
+    }
+}
@@ -0,0 +1,244 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exceptions.PreconditionFailedException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.IdSet;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+@JdbcTest
+@ActiveProfiles("db")
+@Import({FilmDbStorage.class, UserDbStorage.class})
+class DbStorageTest {
+    @Autowired
+    private FilmDbStorage filmStorage;
+    @Autowired
+    private UserDbStorage userStorage;
+    private User firstUser;
+    private User secondUser;
+    private User thirdUser;
+
+    @BeforeEach
+    void setUp() {
+        firstUser = userStorage.addUser(newUser("first"));
+        secondUser = userStorage.addUser(newUser("second"));
+        thirdUser = userStorage.addUser(newUser("third"));
+    }
+
+    @Test
+    void popularFilmsAreOrderedByLikesThenId() {
+        Film quietFilm = filmStorage.addFilm(newFilm("quiet"));
+        Film hitFilm = filmStorage.addFilm(newFilm("hit"));
+        Film niceFilm = filmStorage.addFilm(newFilm("nice"));
+        filmStorage.addLike(hitFilm.getId(), firstUser.getId());
+        filmStorage.addLike(hitFilm.getId(), secondUser.getId());
+        filmStorage.addLike(niceFilm.getId(), firstUser.getId());
+        filmStorage.addLike(niceFilm.getId(), firstUser.getId());
+
+        List<Film> popularFilms = filmStorage.getPopularFilms(3);
+
+        assertEquals(List.of(hitFilm.getId(), niceFilm.getId(), quietFilm.getId()),
+                popularFilms.stream().map(Film::getId).collect(Collectors.toList()));
+        assertEquals(IdSet.of(firstUser.getId(), secondUser.getId()), popularFilms.get(0).getSetOfLikes());
+        assertTrue(filmStorage.deleteLike(hitFilm.getId(), secondUser.getId()));
+        assertFalse(filmStorage.deleteLike(hitFilm.getId(), secondUser.getId()));
+    }
+
+    @Test
+    void updateOfMissingFilmReturnsEmpty() {
+        Film film = filmStorage.addFilm(newFilm("film"));
+        filmStorage.addLike(film.getId(), firstUser.getId());
+        Film missingFilm = newFilm("missing");
+        missingFilm.setId(film.getId() + 100);
+        film.setName("renamed");
+
+        assertTrue(filmStorage.updateFilm(missingFilm).isEmpty());
+        assertThrows(PreconditionFailedException.class, () -> filmStorage.updateFilm(film, 0));
+        Film updatedFilm = filmStorage.updateFilm(film, 1).orElseThrow();
+        assertEquals("renamed", filmStorage.getFilmById(film.getId()).orElseThrow().getName());
+        assertEquals(IdSet.of(firstUser.getId()), updatedFilm.getSetOfLikes());
+        assertEquals(2, filmStorage.getFilmById(film.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void batchInsertsSetGeneratedIds() {
+        List<Film> films = List.of(newFilm("first"), newFilm("second"));
+        List<User> users = List.of(newUser("fourth"), newUser("fifth"));
+
+        filmStorage.addFilms(films);
+        userStorage.addUsers(users);
+
+        for (Film film : films) {
+            assertEquals(film.getName(), filmStorage.getFilmById(film.getId()).orElseThrow().getName());
+        }
+        for (User user : users) {
+            assertEquals(user.getLogin(), userStorage.getUserById(user.getId()).orElseThrow().getLogin());
+        }
+        assertEquals(thirdUser.getId() + 1, users.get(0).getId());
+    }
+
+    @Test
+    void filmsAreFilteredByReleaseYear() {
+        Film oldFilm = newFilm("old");
+        oldFilm.setReleaseDate(LocalDate.of(1999, 12, 31));
+        filmStorage.addFilm(oldFilm);
+        Film newFilm = filmStorage.addFilm(newFilm("new"));
+        filmStorage.addFilm(newFilm("newer"));
+
+        List<Film> films = filmStorage.getFilmsByReleaseYear(2000, 0, 1);
+
+        assertEquals(List.of(newFilm), films);
+        assertEquals(LocalDate.of(2000, 1, 1), films.get(0).getReleaseDate());
+        assertEquals(List.of(oldFilm), filmStorage.getFilmsByReleaseYear(1999, 0, 10));
+        assertEquals(1, filmStorage.getFilmsByReleaseYear(2000, newFilm.getId(), 10).size());
+    }
+
+    @Test
+    void popularFilmsAreFilteredByReleaseDate() {
+        Film oldFilm = newFilm("old");
+        oldFilm.setReleaseDate(LocalDate.of(1999, 12, 31));
+        filmStorage.addFilm(oldFilm);
+        Film quietFilm = filmStorage.addFilm(newFilm("quiet"));
+        Film hitFilm = filmStorage.addFilm(newFilm("hit"));
+        filmStorage.addLike(hitFilm.getId(), firstUser.getId());
+        filmStorage.addLike(oldFilm.getId(), firstUser.getId());
+        filmStorage.addLike(oldFilm.getId(), secondUser.getId());
+
+        assertEquals(List.of(hitFilm, quietFilm),
+                filmStorage.getPopularFilms(10, LocalDate.of(2000, 1, 1), null));
+        assertEquals(List.of(oldFilm, hitFilm),
+                filmStorage.getPopularFilms(2, null, LocalDate.of(2000, 1, 1)));
+    }
+
+    @Test
+    void filmsAndLikesAreReadAndDeletedInBatches() {
+        Film first = filmStorage.addFilm(newFilm("first"));
+        Film second = filmStorage.addFilm(newFilm("second"));
+        filmStorage.addLikes(List.of(new Like(first.getId(), firstUser.getId()),
+                new Like(second.getId(), firstUser.getId()), new Like(second.getId(), secondUser.getId())));
+
+        List<Film> films = filmStorage.getFilmsByIds(List.of(second.getId(), 100L, first.getId()));
+        assertEquals(List.of(second, first), films);
+        assertEquals(IdSet.of(firstUser.getId(), secondUser.getId()), films.get(0).getSetOfLikes());
+        assertEquals(List.of(100L), filmStorage.getMissingFilmIds(List.of(first.getId(), 100L)));
+        assertEquals(List.of(new Like(second.getId(), secondUser.getId())), filmStorage.deleteLikes(List.of(
+                new Like(second.getId(), secondUser.getId()), new Like(first.getId(), thirdUser.getId()))));
+        assertEquals(2, filmStorage.getLikesCount());
+
+        userStorage.addFriendships(List.of(new Friendship(firstUser.getId(), secondUser.getId()),
+                new Friendship(firstUser.getId(), thirdUser.getId())));
+        assertEquals(List.of(new Friendship(secondUser.getId(), firstUser.getId())), userStorage.deleteFriendships(
+                List.of(new Friendship(secondUser.getId(), firstUser.getId()),
+                        new Friendship(secondUser.getId(), thirdUser.getId()))));
+        assertEquals(List.of(IdSet.of(thirdUser.getId()), new IdSet()),
+                userStorage.getUsersByIds(List.of(firstUser.getId(), secondUser.getId())).stream()
+                        .map(User::getSetOfFriends)
+                        .collect(Collectors.toList()));
+        assertEquals(List.of(), userStorage.getMissingUserIds(List.of(thirdUser.getId())));
+    }
+
+    @Test
+    void filmsAreSearchedByWordPrefixes() {
+        Film matrix = filmStorage.addFilm(newFilm("The Matrix"));
+        Film reloaded = filmStorage.addFilm(newFilm("The Matrix Reloaded"));
+        Film mathematics = newFilm("Mathematics");
+        mathematics.setDescription("A film about the matrix calculus");
+        filmStorage.addFilm(mathematics);
+        filmStorage.addLike(reloaded.getId(), firstUser.getId());
+
+        assertEquals(List.of(reloaded, matrix), filmStorage.searchFilms("matr", true, false, 10));
+        assertEquals(List.of(reloaded, matrix, mathematics), filmStorage.searchFilms("MATRIX", true, true, 10));
+        assertEquals(List.of(mathematics), filmStorage.searchFilms("calc matr", true, true, 10));
+        assertEquals(List.of(), filmStorage.searchFilms("atrix", true, true, 10));
+    }
+
+    @Test
+    void filmsLikedBySimilarUsersAreRecommended() {
+        Film sharedFilm = filmStorage.addFilm(newFilm("shared"));
+        Film firstFilm = filmStorage.addFilm(newFilm("first"));
+        Film secondFilm = filmStorage.addFilm(newFilm("second"));
+        filmStorage.addLike(sharedFilm.getId(), firstUser.getId());
+        filmStorage.addLike(sharedFilm.getId(), secondUser.getId());
+        filmStorage.addLike(sharedFilm.getId(), thirdUser.getId());
+        filmStorage.addLike(firstFilm.getId(), secondUser.getId());
+        filmStorage.addLike(firstFilm.getId(), thirdUser.getId());
+        filmStorage.addLike(secondFilm.getId(), thirdUser.getId());
+
+        assertEquals(List.of(firstFilm, secondFilm), filmStorage.getRecommendedFilms(firstUser.getId(), 10));
+        assertEquals(List.of(secondFilm), filmStorage.getRecommendedFilms(secondUser.getId(), 10));
+        assertEquals(List.of(), filmStorage.getRecommendedFilms(thirdUser.getId(), 10));
+    }
+
+    @Test
+    void recommendationsReadLikeListsOnlyMaxFanOutDeep() {
+        Film blockbuster = filmStorage.addFilm(newFilm("blockbuster"));
+        Film rareFilm = filmStorage.addFilm(newFilm("rare"));
+        List<User> fans = IntStream.range(0, FilmRecommendations.MAX_FAN_OUT)
+                .mapToObj(i -> newUser("fan" + i))
+                .collect(Collectors.toList());
+        userStorage.addUsers(fans);
+        filmStorage.addLikes(fans.stream()
+                .map(fan -> new Like(blockbuster.getId(), fan.getId()))
+                .collect(Collectors.toList()));
+        filmStorage.addLike(blockbuster.getId(), firstUser.getId());
+        Film cultFilm = filmStorage.addFilm(newFilm("cult"));
+        filmStorage.addLike(cultFilm.getId(), fans.get(0).getId());
+        User lastFan = fans.get(fans.size() - 1);
+        Film sequel = filmStorage.addFilm(newFilm("sequel"));
+        filmStorage.addLike(sequel.getId(), firstUser.getId());
+        filmStorage.addLike(sequel.getId(), lastFan.getId());
+        filmStorage.addLike(rareFilm.getId(), lastFan.getId());
+
+        assertEquals(List.of(cultFilm), filmStorage.getRecommendedFilms(firstUser.getId(), 10));
+    }
+
+    @Test
+    void friendshipsAreSymmetricAndPaged() {
+        userStorage.addFriend(firstUser.getId(), thirdUser.getId());
+        userStorage.addFriend(secondUser.getId(), thirdUser.getId());
+        userStorage.addFriend(firstUser.getId(), secondUser.getId());
+
+        assertTrue(userStorage.checkAreTheseUsersFriends(thirdUser.getId(), firstUser.getId()));
+        assertEquals(List.of(thirdUser), userStorage.getListOfCommonFriends(firstUser.getId(), secondUser.getId(),
+                0, 10));
+        assertEquals(List.of(), userStorage.getListOfCommonFriends(firstUser.getId(), secondUser.getId(),
+                thirdUser.getId(), 10));
+        assertEquals(List.of(), userStorage.getRecommendedFriends(firstUser.getId(), 10));
+        assertTrue(userStorage.deleteFriend(thirdUser.getId(), firstUser.getId()));
+        assertEquals(List.of(firstUser), userStorage.getRecommendedFriends(thirdUser.getId(), 10));
+        assertEquals(List.of(secondUser), userStorage.getListOfFriends(firstUser.getId()));
+        assertEquals(IdSet.of(firstUser.getId(), thirdUser.getId()),
+                userStorage.getUserById(secondUser.getId()).orElseThrow().getSetOfFriends());
+    }
+
+    @Test
+    void repeatedFriendshipsKeepUserVersions() {
+        userStorage.addFriend(firstUser.getId(), secondUser.getId());
+        long firstVersion = userStorage.getUserById(firstUser.getId()).orElseThrow().getVersion();
+        long secondVersion = userStorage.getUserById(secondUser.getId()).orElseThrow().getVersion();
+
+        userStorage.addFriend(secondUser.getId(), firstUser.getId());
+        userStorage.addFriendships(List.of(new Friendship(firstUser.getId(), secondUser.getId())));
+
+        assertEquals(firstVersion, userStorage.getUserById(firstUser.getId()).orElseThrow().getVersion());
+        assertEquals(secondVersion, userStorage.getUserById(secondUser.getId()).orElseThrow().getVersion());
+        userStorage.addFriendships(List.of(new Friendship(firstUser.getId(), thirdUser.getId())));
+        assertEquals(firstVersion + 1, userStorage.getUserById(firstUser.getId()).orElseThrow().getVersion());
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+
+class FilmSearchIndexTest {
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+
+    @Test
+    void termsOfRenamedFilmsAreDropped() {
+        Film film = newFilm(1, "Stalker stalker", "zone");
+        Film otherFilm = newFilm(2, "Solaris", "zone");
+        searchIndex.addFilm(film);
+        searchIndex.addFilm(otherFilm);
+        Film renamedFilm = newFilm(1, "Mirror", "memory");
+
+        searchIndex.updateFilm(film, renamedFilm);
+
+        assertEquals(4, searchIndex.getTermsCount());
+        assertArrayEquals(new long[0], searchIndex.findCandidates(List.of("stalker"), true, true));
+        assertArrayEquals(new long[]{2}, searchIndex.findCandidates(List.of("zone"), true, true));
+        assertArrayEquals(new long[]{1}, searchIndex.findCandidates(List.of("mem"), true, true));
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+
+class InMemoryFilmStorageTest {
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+
+    @Test
+    void popularFilmsAreFilteredByReleaseDate() {
+        Film december1999 = filmStorage.addFilm(newFilm(LocalDate.of(1999, 12, 31)));
+        Film march2000 = filmStorage.addFilm(newFilm(LocalDate.of(2000, 3, 1)));
+        Film june2000 = filmStorage.addFilm(newFilm(LocalDate.of(2000, 6, 1)));
+        Film may2001 = filmStorage.addFilm(newFilm(LocalDate.of(2001, 5, 1)));
+        like(december1999, 5);
+        like(march2000, 1);
+        like(june2000, 3);
+        like(may2001, 4);
+
+        assertEquals(List.of(june2000, march2000),
+                filmStorage.getPopularFilms(10, LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31)));
+        assertEquals(List.of(december1999, may2001),
+                filmStorage.getPopularFilms(2, LocalDate.of(1999, 6, 1), LocalDate.of(2001, 6, 1)));
+        assertEquals(List.of(may2001, june2000),
+                filmStorage.getPopularFilms(10, LocalDate.of(2000, 4, 1), null));
+        assertEquals(List.of(december1999, march2000),
+                filmStorage.getPopularFilms(10, null, LocalDate.of(2000, 3, 1)));
+    }
+
+    @Test
+    void updatedReleaseDateMovesFilmToAnotherYear() {
+        Film film = filmStorage.addFilm(newFilm(LocalDate.of(1999, 1, 1)));
+        like(film, 2);
+        Film updatedFilm = newFilm(LocalDate.of(2005, 1, 1));
+        updatedFilm.setId(film.getId());
+        filmStorage.updateFilm(updatedFilm);
+
+        assertEquals(List.of(), filmStorage.getPopularFilms(10, LocalDate.of(1999, 1, 1), LocalDate.of(1999, 12, 31)));
+        assertEquals(List.of(), filmStorage.getFilmsByReleaseYear(1999, 0, 10));
+        assertEquals(List.of(updatedFilm), filmStorage.getFilmsByReleaseYear(2005, 0, 10));
+        List<Film> popularFilms = filmStorage.getPopularFilms(10, LocalDate.of(2005, 1, 1), null);
+        assertEquals(List.of(updatedFilm), popularFilms);
+        assertEquals(2, popularFilms.get(0).getSetOfLikes().size());
+    }
+
+    @Test
+    void filmsLikedBySimilarUsersAreRecommended() {
+        Film first = filmStorage.addFilm(newFilm(LocalDate.of(2000, 1, 1)));
+        Film second = filmStorage.addFilm(newFilm(LocalDate.of(2000, 1, 1)));
+        Film third = filmStorage.addFilm(newFilm(LocalDate.of(2000, 1, 1)));
+        Film fourth = filmStorage.addFilm(newFilm(LocalDate.of(2000, 1, 1)));
+        filmStorage.addLike(first.getId(), 1);
+        filmStorage.addLike(second.getId(), 1);
+        filmStorage.addLike(first.getId(), 2);
+        filmStorage.addLike(second.getId(), 2);
+        filmStorage.addLike(third.getId(), 2);
+        filmStorage.addLike(first.getId(), 3);
+        filmStorage.addLike(fourth.getId(), 3);
+        filmStorage.addLike(fourth.getId(), 4);
+
+        assertEquals(List.of(third, fourth), filmStorage.getRecommendedFilms(1, 10));
+        assertTrue(filmStorage.deleteLike(third.getId(), 2));
+        assertEquals(List.of(fourth), filmStorage.getRecommendedFilms(1, 10));
+        assertEquals(List.of(), filmStorage.getRecommendedFilms(5, 10));
+    }
+
+    @Test
+    void filmsAreSearchedByWordPrefixesAndRankedByLikes() {
+        Film matrix = filmStorage.addFilm(newFilm("The Matrix", null));
+        Film reloaded = filmStorage.addFilm(newFilm("The Matrix Reloaded", null));
+        Film mathematics = filmStorage.addFilm(newFilm("Mathematics", "A film about the matrix calculus"));
+        like(reloaded, 2);
+        like(mathematics, 1);
+
+        assertEquals(List.of(reloaded, matrix), filmStorage.searchFilms("matr", true, false, 10));
+        assertEquals(List.of(reloaded, mathematics, matrix), filmStorage.searchFilms("MATRIX", true, true, 10));
+        assertEquals(List.of(mathematics), filmStorage.searchFilms("calc, matr!", true, true, 10));
+        assertEquals(List.of(), filmStorage.searchFilms("atrix", true, true, 10));
+
+        Film renamed = newFilm("Сталкер", null);
+        renamed.setId(matrix.getId());
+        filmStorage.updateFilm(renamed);
+
+        assertEquals(List.of(reloaded), filmStorage.searchFilms("matrix", true, false, 10));
+        assertEquals(List.of(renamed), filmStorage.searchFilms("сталк", true, false, 10));
+    }
+
+    @Test
+    void broadSearchScansFilmsByPopularity() {
+        for (int i = 0; i <= FilmSearchIndex.MAX_CANDIDATES; i++) {
+            filmStorage.addFilm(newFilm("The film " + i, null));
+        }
+        Film hit = filmStorage.addFilm(newFilm("The hit", null));
+        like(hit, 3);
+
+        assertEquals(hit, filmStorage.searchFilms("the", true, true, 10).get(0));
+        assertEquals(10, filmStorage.searchFilms("the", true, true, 10).size());
+        assertEquals(List.of(hit), filmStorage.searchFilms("the hi", true, true, 10));
+    }
+
+    @Test
+    void broadSearchForWordsThatNeverMeetScansOnlyTheMostPopularFilms() {
+        for (int i = 0; i <= FilmSearchIndex.MAX_CANDIDATES; i++) {
+            filmStorage.addFilm(newFilm("Alpha " + i, null));
+            filmStorage.addFilm(newFilm("Beta " + i, null));
+        }
+
+        assertEquals(List.of(), filmStorage.searchFilms("alpha beta", true, true, 10));
+
+        Film popular = filmStorage.addFilm(newFilm("Alpha beta", null));
+        like(popular, 1);
+        filmStorage.addFilm(newFilm("Beta alpha", null));
+
+        assertEquals(List.of(popular), filmStorage.searchFilms("alpha beta", true, true, 10));
+    }
+
+    private void like(Film film, int likes) {
+        for (long userId = 1; userId <= likes; userId++) {
+            filmStorage.addLike(film.getId(), userId);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class InMemoryStorageConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+
+    @Test
+    void concurrentLikesAreNotLost() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        Film hotFilm = filmStorage.addFilm(newFilm());
+        Film otherFilm = filmStorage.addFilm(newFilm());
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                long userId = (long) thread * OPERATIONS_PER_THREAD + i;
+                filmStorage.addLike(hotFilm.getId(), userId);
+                if (i % 2 == 0) {
+                    filmStorage.addLike(otherFilm.getId(), userId);
+                }
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, filmStorage.getFilmById(hotFilm.getId()).orElseThrow().getSetOfLikes().size());
+        assertEquals(THREADS * OPERATIONS_PER_THREAD / 2,
+                filmStorage.getFilmById(otherFilm.getId()).orElseThrow().getSetOfLikes().size());
+        assertEquals(List.of(hotFilm, otherFilm), filmStorage.getPopularFilms(2));
+    }
+
+    @Test
+    void concurrentLikesAndUnlikesKeepPopularityIndexConsistent() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            films.add(filmStorage.addFilm(newFilm()));
+        }
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                long filmId = films.get(i % films.size()).getId();
+                long userId = (long) thread * OPERATIONS_PER_THREAD + i;
+                filmStorage.addLike(filmId, userId);
+                if (i % 3 == 0) {
+                    filmStorage.deleteLike(filmId, userId);
+                }
+            }
+        });
+
+        List<Film> popularFilms = filmStorage.getPopularFilms(films.size());
+        assertEquals(films.size(), popularFilms.size());
+        for (int i = 1; i < popularFilms.size(); i++) {
+            assertTrue(popularFilms.get(i - 1).getSetOfLikes().size() >= popularFilms.get(i).getSetOfLikes().size());
+        }
+        int totalLikes = popularFilms.stream().mapToInt(film -> film.getSetOfLikes().size()).sum();
+        assertEquals(THREADS * (OPERATIONS_PER_THREAD - (OPERATIONS_PER_THREAD + 2) / 3), totalLikes);
+    }
+
+    @Test
+    void concurrentInsertsGetDistinctIds() throws Exception {
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                filmStorage.addFilm(newFilm());
+                userStorage.addUser(newUser());
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, filmStorage.getAllFilms().size());
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, userStorage.getAllUsers().size());
+    }
+
+    @Test
+    void concurrentFriendshipsStaySymmetric() throws Exception {
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            users.add(userStorage.addUser(newUser()));
+        }
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                long userId = users.get((thread + i) % users.size()).getId();
+                long friendId = users.get((thread * 7 + i * 13) % users.size()).getId();
+                if (userId == friendId) {
+                    continue;
+                }
+                if (i % 4 == 3) {
+                    userStorage.deleteFriend(userId, friendId);
+                } else {
+                    userStorage.addFriend(userId, friendId);
+                }
+            }
+        });
+
+        for (User user : users) {
+            for (long friendId : user.getSetOfFriends().toArray()) {
+                assertTrue(userStorage.checkAreTheseUsersFriends(friendId, user.getId()),
+                        String.format("Friendship %s -> %s is one-sided", user.getId(), friendId));
+            }
+        }
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadNumber = thread;
+            futures.add(executor.submit(() -> {
+                start.await();
+                task.run(threadNumber);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+    }
+
+    private interface ThreadTask {
+        void run(int threadNumber);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class InMemoryUserStorageTest {
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+    @Test
+    void friendsOfFriendsAreRankedByMutualFriends() {
+        int friendsCount = FriendRecommendations.PARALLEL_THRESHOLD * 4;
+        User user = addUser();
+        User closeCandidate = addUser();
+        User farCandidate = addUser();
+        User friendOfUser = addUser();
+        userStorage.addFriend(user.getId(), friendOfUser.getId());
+        for (int i = 0; i < friendsCount; i++) {
+            User friend = addUser();
+            userStorage.addFriend(user.getId(), friend.getId());
+            userStorage.addFriend(friend.getId(), closeCandidate.getId());
+            if (i % 2 == 0) {
+                userStorage.addFriend(friend.getId(), farCandidate.getId());
+            }
+            if (i < 3) {
+                userStorage.addFriend(friend.getId(), friendOfUser.getId());
+            }
+        }
+
+        List<Long> recommendedIds = userStorage.getRecommendedFriends(user.getId(), 2).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(closeCandidate.getId(), farCandidate.getId()), recommendedIds);
+        assertEquals(List.of(user, farCandidate, friendOfUser),
+                userStorage.getRecommendedFriends(closeCandidate.getId(), 5));
+    }
+
+    private User addUser() {
+        return userStorage.addUser(newUser());
+    }
+}
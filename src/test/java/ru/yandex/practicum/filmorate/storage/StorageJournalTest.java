@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class StorageJournalTest {
+    @TempDir
+    Path directory;
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+    private StorageJournal journal;
+
+    @Test
+    void changesSurviveRestartWithAndWithoutSnapshot() throws IOException {
+        restart();
+        Film film = filmStorage.addFilm(newFilm("Solaris"));
+        Film otherFilm = filmStorage.addFilm(newFilm("Stalker"));
+        User user = userStorage.addUser(newUser("andrei"));
+        User friend = userStorage.addUser(newUser("natalya"));
+        User formerFriend = userStorage.addUser(newUser("donatas"));
+        filmStorage.addLike(film.getId(), user.getId());
+        filmStorage.addLike(film.getId(), friend.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+        journal.snapshot();
+        filmStorage.addLike(otherFilm.getId(), user.getId());
+        filmStorage.deleteLike(film.getId(), friend.getId());
+        userStorage.addFriend(user.getId(), formerFriend.getId());
+        userStorage.deleteFriend(user.getId(), formerFriend.getId());
+        Film renamedFilm = newFilm("Solaris (1972)");
+        renamedFilm.setId(film.getId());
+        filmStorage.updateFilm(renamedFilm);
+
+        restart();
+
+        assertEquals(2, filmStorage.getFilmsCount());
+        assertEquals(2, filmStorage.getLikesCount());
+        assertEquals("Solaris (1972)", filmStorage.getFilmById(film.getId()).orElseThrow().getName());
+        assertTrue(filmStorage.getFilmById(film.getId()).orElseThrow().getSetOfLikes().contains(user.getId()));
+        assertEquals(List.of(film, otherFilm), filmStorage.getPopularFilms(10));
+        assertEquals(3, userStorage.getUsersCount());
+        assertEquals(1, userStorage.getFriendshipsCount());
+        assertEquals(List.of(friend), userStorage.getListOfFriends(user.getId()));
+        assertFalse(userStorage.checkAreTheseUsersFriends(formerFriend.getId(), user.getId()));
+        assertEquals(4, userStorage.addUser(newUser("nikolai")).getId());
+    }
+
+    @Test
+    void tornTailIsIgnored() throws IOException {
+        restart();
+        Film film = filmStorage.addFilm(newFilm("Mirror"));
+        filmStorage.addLike(film.getId(), 1);
+        journal.stop();
+        Path segment = listSegments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        restart();
+
+        assertTrue(filmStorage.checkIsFilmInStorage(film.getId()));
+        assertEquals(0, filmStorage.getLikesCount());
+    }
+
+    @Test
+    void repeatedLikesAndFriendshipsAreNotLogged() throws IOException {
+        restart();
+        Film film = filmStorage.addFilm(newFilm("Nostalghia"));
+        User user = userStorage.addUser(newUser("oleg"));
+        User friend = userStorage.addUser(newUser("domiziana"));
+        filmStorage.addLike(film.getId(), user.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+        Path segment = listSegments().get(0);
+        long segmentSize = Files.size(segment);
+
+        filmStorage.addLike(film.getId(), user.getId());
+        filmStorage.addLikes(List.of(new Like(film.getId(), user.getId())));
+        userStorage.addFriend(friend.getId(), user.getId());
+
+        assertEquals(segmentSize, Files.size(segment));
+    }
+
+    private void restart() throws IOException {
+        if (journal != null) {
+            journal.stop();
+        }
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+        journal = new StorageJournal(filmStorage, userStorage, directory, true, Duration.ofHours(1));
+        journal.start();
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("wal-"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static ru.yandex.practicum.filmorate.TestData.newFilm;
+import static ru.yandex.practicum.filmorate.TestData.newUser;
+
+class StorageSnapshotTest {
+    private static final int USERS = StorageSnapshot.SECTION_SIZE + 100;
+    @TempDir
+    Path directory;
+    private final InMemoryFilmStorage filmStorage = new InMemoryFilmStorage();
+    private final InMemoryUserStorage userStorage = new InMemoryUserStorage();
+
+    @Test
+    void storagesAreRestoredFromSeveralSections() throws IOException {
+        fillStorages();
+        StorageSnapshot.write(directory, 1, filmStorage, userStorage);
+        InMemoryFilmStorage restoredFilmStorage = new InMemoryFilmStorage();
+        InMemoryUserStorage restoredUserStorage = new InMemoryUserStorage();
+
+        StorageSnapshot.read(directory, 1, restoredFilmStorage, restoredUserStorage);
+
+        assertEquals(filmStorage.getLikesCount(), restoredFilmStorage.getLikesCount());
+        assertEquals(filmStorage.getPopularFilms(10), restoredFilmStorage.getPopularFilms(10));
+        Film oldestFilm = restoredFilmStorage.getFilmById(1).orElseThrow();
+        assertEquals(LocalDate.of(1895, 12, 28), oldestFilm.getReleaseDate());
+        assertEquals(filmStorage.getFilmById(1).orElseThrow().getSetOfLikes(), oldestFilm.getSetOfLikes());
+        assertEquals(USERS, restoredUserStorage.getUsersCount());
+        assertEquals(userStorage.getFriendshipsCount(), restoredUserStorage.getFriendshipsCount());
+        assertEquals("Пользователь 7", restoredUserStorage.getUserById(7).orElseThrow().getName());
+        assertEquals(userStorage.getListOfFriends(1), restoredUserStorage.getListOfFriends(1));
+        assertEquals(USERS + 1, restoredUserStorage.addUser(newUser()).getId());
+    }
+
+    @Test
+    void corruptedSectionIsRejected() throws IOException {
+        fillStorages();
+        StorageSnapshot.write(directory, 1, filmStorage, userStorage);
+        try (FileChannel channel = FileChannel.open(directory.resolve("snapshot-1.bin"),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer middle = ByteBuffer.allocate(1);
+            channel.read(middle, channel.size() / 2);
+            middle.put(0, (byte) (middle.get(0) ^ 1));
+            middle.rewind();
+            channel.write(middle, channel.size() / 2);
+        }
+
+        assertThrows(IOException.class, () -> StorageSnapshot.read(directory, 1, new InMemoryFilmStorage(),
+                new InMemoryUserStorage()));
+    }
+
+    private void fillStorages() {
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= USERS; i++) {
+            User user = newUser("user" + i);
+            user.setName("Пользователь " + i);
+            users.add(user);
+        }
+        userStorage.addUsers(users);
+        for (long friendId = 2; friendId <= 1000; friendId++) {
+            userStorage.addFriend(1, friendId);
+        }
+        for (int i = 0; i < 30; i++) {
+            Film film = newFilm(LocalDate.of(1895, 12, 28).plusYears(i * 4L));
+            film.setName("Фильм " + i);
+            film.setDuration(90 + i);
+            Film storedFilm = filmStorage.addFilm(film);
+            for (long userId = 1; userId <= i * 97L; userId += 3) {
+                filmStorage.addLike(storedFilm.getId(), userId);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IdCounterTest {
+
+    @Test
+    void countsSurviveRehashAndMerge() {
+        IdCounter counter = new IdCounter();
+        IdCounter other = new IdCounter();
+        for (long id = 0; id < 1000; id++) {
+            counter.increment(id);
+            other.add(id + 500, 2);
+        }
+        counter.addAll(other);
+
+        assertEquals(1500, counter.size());
+        assertEquals(1, counter.get(0));
+        assertEquals(3, counter.get(999));
+        assertEquals(2, counter.get(1499));
+        assertEquals(0, counter.get(1500));
+    }
+
+    @Test
+    void topReturnsHighestCountsWithSmallerIdsFirst() {
+        IdCounter counter = new IdCounter();
+        counter.add(7, 3);
+        counter.add(3, 5);
+        counter.add(9, 3);
+        counter.add(4, 1);
+        counter.add(5, 3);
+        counter.add(Long.MAX_VALUE, 9);
+
+        assertArrayEquals(new long[]{3, 5, 7}, counter.top(3, id -> id != Long.MAX_VALUE));
+        assertArrayEquals(new long[]{Long.MAX_VALUE, 3, 5, 7, 9, 4}, counter.top(10, id -> true));
+        assertArrayEquals(new long[0], counter.top(0, id -> true));
+    }
+}
@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdSetFootprintTest {
+    private static final int EDGES = 100_000;
+
+    @Test
+    void idSetUsesAFractionOfTheBoxedSetFootprint() {
+        Set<Long> boxedSet = ConcurrentHashMap.newKeySet();
+        IdSet idSet = new IdSet();
+        for (long userId = 1; userId <= EDGES; userId++) {
+            boxedSet.add(userId * 7);
+            idSet.add(userId * 7);
+        }
+
+        double boxedBytesPerEdge = (double) GraphLayout.parseInstance(boxedSet).totalSize() / EDGES;
+        double idSetBytesPerEdge = (double) GraphLayout.parseInstance(idSet).totalSize() / EDGES;
+
+        assertTrue(idSetBytesPerEdge * 4 < boxedBytesPerEdge);
+        assertTrue(idSetBytesPerEdge <= 12);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class IdSetTest {
+
+    @Test
+    void behavesLikeHashSetUnderRandomAddsAndRemoves() {
+        Random random = new Random(42);
+        IdSet ids = new IdSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            long id = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), ids.remove(id));
+            } else {
+                assertEquals(expected.add(id), ids.add(id));
+            }
+            assertEquals(expected.size(), ids.size());
+        }
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), ids.toSortedArray());
+        for (long id = 0; id < 5_000; id++) {
+            assertEquals(expected.contains(id), ids.contains(id));
+        }
+    }
+
+    @Test
+    void widensToLongSlotsForIdsBeyondIntRange() {
+        long bigId = Integer.MAX_VALUE + 10L;
+        IdSet ids = IdSet.of(1, 2, -3);
+
+        ids.add(bigId);
+        ids.remove(2);
+
+        assertArrayEquals(new long[]{-3, 1, bigId}, ids.toSortedArray());
+        assertFalse(ids.contains((int) bigId));
+    }
+
+    @Test
+    void intersectReturnsCommonIdsInAscendingOrder() {
+        IdSet first = IdSet.of(9, 1, 4, 7, 12, 30);
+        IdSet second = IdSet.of(30, 2, 4, 12, 8);
+
+        assertArrayEquals(new long[]{4, 12, 30}, first.intersect(second));
+        assertArrayEquals(new long[]{4, 12, 30}, second.intersect(first));
+    }
+
+    @Test
+    void serializesAsJsonArray() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        IdSet restored = mapper.readValue(mapper.writeValueAsString(IdSet.of(3, 1, 2)), IdSet.class);
+
+        assertEquals(IdSet.of(1, 2, 3), restored);
+        assertEquals("[1]", mapper.writeValueAsString(IdSet.of(1)));
+    }
+}